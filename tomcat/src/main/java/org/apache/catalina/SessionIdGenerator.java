@@ -0,0 +1,17 @@
+package org.apache.catalina;
+
+/**
+ * Creates the identifiers handed out as session cookies.
+ */
+public interface SessionIdGenerator {
+
+    /**
+     * Returns a new session id. Safe to call from any number of threads.
+     */
+    String generateSessionId();
+
+    /**
+     * Returns the number of random bytes in each id.
+     */
+    int getSessionIdLength();
+}
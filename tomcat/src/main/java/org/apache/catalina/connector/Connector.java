@@ -1,13 +1,30 @@
 package org.apache.catalina.connector;
 
+import org.apache.catalina.util.StandardSessionIdGenerator;
+import org.apache.catalina.webresources.ResourceFingerprints;
+import org.apache.catalina.webresources.StaticResourceCache;
+import org.apache.coyote.http11.FileSessionStore;
+import org.apache.coyote.http11.Http11Config;
 import org.apache.coyote.http11.Http11Processor;
+import org.apache.coyote.http11.SessionManager;
+import org.apache.tomcat.util.net.NioEndpoint;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.net.ServerSocket;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 public class Connector implements Runnable {
 
@@ -15,8 +32,32 @@ public class Connector implements Runnable {
 
     private static final int DEFAULT_PORT = 8080;
     private static final int DEFAULT_ACCEPT_COUNT = 100;
+    private static final int DEFAULT_MAX_THREADS = 200;
+    private static final int DEFAULT_MIN_SPARE_THREADS = 10;
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+    private static final long DEFAULT_CACHE_MAX_SIZE = 10 * 1024;
+    private static final int DEFAULT_CACHE_OBJECT_MAX_SIZE = 512;
+    private static final long DEFAULT_CACHE_TTL = 5_000;
+    private static final int DEFAULT_CACHE_OFF_HEAP_OBJECT_MAX_SIZE = 4 * 1024;
 
-    private final ServerSocket serverSocket;
+    private final ServerSocketChannel serverChannel;
+    private final Http11Config http11Config = new Http11Config();
+    private int maxThreads = DEFAULT_MAX_THREADS;
+    private int minSpareThreads = DEFAULT_MIN_SPARE_THREADS;
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private boolean useVirtualThreads;
+    private boolean useNio;
+    private boolean cachingAllowed = true;
+    private long cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+    private int cacheObjectMaxSize = DEFAULT_CACHE_OBJECT_MAX_SIZE;
+    private long cacheTtl = DEFAULT_CACHE_TTL;
+    private long cacheOffHeapMaxSize;
+    private int cacheOffHeapObjectMaxSize = DEFAULT_CACHE_OFF_HEAP_OBJECT_MAX_SIZE;
+    private boolean fingerprintResources = true;
+    private StaticResourceCache resourceCache;
+    private final SessionManager sessionManager = new SessionManager();
+    private ExecutorService executor;
+    private NioEndpoint endpoint;
     private boolean stopped;
 
     public Connector() {
@@ -24,26 +65,286 @@ public class Connector implements Runnable {
     }
 
     public Connector(final int port, final int acceptCount) {
-        this.serverSocket = createServerSocket(port, acceptCount);
+        this.serverChannel = createServerChannel(port, acceptCount);
         this.stopped = false;
     }
 
-    private ServerSocket createServerSocket(final int port, final int acceptCount) {
+    private ServerSocketChannel createServerChannel(final int port, final int acceptCount) {
         try {
             final int checkedPort = checkPort(port);
             final int checkedAcceptCount = checkAcceptCount(acceptCount);
-            return new ServerSocket(checkedPort, checkedAcceptCount);
+            final var channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(checkedPort), checkedAcceptCount);
+            return channel;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    public void setMaxThreads(final int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public void setMinSpareThreads(final int minSpareThreads) {
+        this.minSpareThreads = minSpareThreads;
+    }
+
+    public void setMaxQueueSize(final int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * Run each connection on its own virtual thread instead of the platform
+     * thread pool. maxThreads, minSpareThreads and maxQueueSize are ignored.
+     */
+    public void setUseVirtualThreads(final boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * Serve connections from a selector-based {@link NioEndpoint} instead of a
+     * blocking accept loop, so idle keep-alive connections do not hold a worker.
+     */
+    public void setUseNio(final boolean useNio) {
+        this.useNio = useNio;
+    }
+
+    public void setKeepAliveTimeout(final int keepAliveTimeout) {
+        http11Config.setKeepAliveTimeout(keepAliveTimeout);
+    }
+
+    public void setMaxKeepAliveRequests(final int maxKeepAliveRequests) {
+        http11Config.setMaxKeepAliveRequests(maxKeepAliveRequests);
+    }
+
+    public void setMaxHttpHeaderSize(final int maxHttpHeaderSize) {
+        http11Config.setMaxHttpHeaderSize(maxHttpHeaderSize);
+    }
+
+    public void setMaxHeaderCount(final int maxHeaderCount) {
+        http11Config.setMaxHeaderCount(maxHeaderCount);
+    }
+
+    public void setMaxUriLength(final int maxUriLength) {
+        http11Config.setMaxUriLength(maxUriLength);
+    }
+
+    public void setMaxPostSize(final int maxPostSize) {
+        http11Config.setMaxPostSize(maxPostSize);
+    }
+
+    public void setUseSendfile(final boolean useSendfile) {
+        http11Config.setUseSendfile(useSendfile);
+    }
+
+    public void setSendfileSize(final int sendfileSize) {
+        http11Config.setSendfileSize(sendfileSize);
+    }
+
+    public void setCachingAllowed(final boolean cachingAllowed) {
+        this.cachingAllowed = cachingAllowed;
+    }
+
+    /**
+     * Total size of the static resource cache in kilobytes.
+     */
+    public void setCacheMaxSize(final long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    /**
+     * Largest static file, in kilobytes, whose content is kept in the cache.
+     */
+    public void setCacheObjectMaxSize(final int cacheObjectMaxSize) {
+        this.cacheObjectMaxSize = cacheObjectMaxSize;
+    }
+
+    /**
+     * Milliseconds a cached resource is served before its file is checked again.
+     */
+    public void setCacheTtl(final long cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * Size in kilobytes of the off-heap cache tier, which keeps files larger
+     * than cacheObjectMaxSize in direct buffers. 0, the default, disables it.
+     * Evicted buffers are freed only when collected, so set
+     * -XX:MaxDirectMemorySize as well to bound the memory actually used.
+     */
+    public void setCacheOffHeapMaxSize(final long cacheOffHeapMaxSize) {
+        this.cacheOffHeapMaxSize = cacheOffHeapMaxSize;
+    }
+
+    /**
+     * Largest static file, in kilobytes, kept in the off-heap cache tier.
+     */
+    public void setCacheOffHeapObjectMaxSize(final int cacheOffHeapObjectMaxSize) {
+        this.cacheOffHeapObjectMaxSize = cacheOffHeapObjectMaxSize;
+    }
+
+    /**
+     * Hash the static files at startup, serve each one also under
+     * /resources/{hash}/ with a Cache-Control that lets clients keep it for a
+     * year, and point the references in the HTML pages there.
+     */
+    public void setFingerprintResources(final boolean fingerprintResources) {
+        this.fingerprintResources = fingerprintResources;
+    }
+
+    /**
+     * Gzip compress responses for clients that accept it. Cached static files
+     * keep a compressed variant made once; other bodies are compressed while
+     * they are written, by at most maxActiveDeflaters responses at a time.
+     */
+    public void setCompression(final boolean compression) {
+        http11Config.setCompression(compression);
+    }
+
+    public void setCompressionMinSize(final int compressionMinSize) {
+        http11Config.setCompressionMinSize(compressionMinSize);
+    }
+
+    /**
+     * Comma separated MIME types of the bodies that are compressed.
+     */
+    public void setCompressibleMimeType(final String compressibleMimeType) {
+        http11Config.setCompressibleMimeType(compressibleMimeType);
+    }
+
+    public void setMaxActiveDeflaters(final int maxActiveDeflaters) {
+        http11Config.setMaxActiveDeflaters(maxActiveDeflaters);
+    }
+
+    /**
+     * Bytes of a streamed body collected before they go out as one chunk.
+     */
+    public void setChunkFlushThreshold(final int chunkFlushThreshold) {
+        http11Config.setChunkFlushThreshold(chunkFlushThreshold);
+    }
+
+    /**
+     * Minutes a session may go unused before it expires.
+     */
+    public void setSessionTimeout(final int sessionTimeout) {
+        sessionManager.setMaxInactiveInterval(sessionTimeout * 60);
+    }
+
+    /**
+     * Sessions held at most, which bounds the heap they take; -1 means
+     * unlimited.
+     */
+    public void setMaxActiveSessions(final int maxActiveSessions) {
+        sessionManager.setMaxActiveSessions(maxActiveSessions);
+    }
+
+    /**
+     * Whether a login beyond maxActiveSessions evicts a session that has not
+     * been used recently or is refused.
+     */
+    public void setSessionOverflowPolicy(final SessionManager.OverflowPolicy overflowPolicy) {
+        sessionManager.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * Random bytes in each session id, which sets its entropy; 16 by default.
+     */
+    public void setSessionIdLength(final int sessionIdLength) {
+        sessionManager.setSessionIdGenerator(new StandardSessionIdGenerator(sessionIdLength));
+    }
+
+    /**
+     * Keeps sessions in {@code file} so that they survive a restart; none is
+     * kept by default.
+     */
+    public void setSessionStoreFile(final Path file) {
+        sessionManager.setStore(new FileSessionStore(file));
+    }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    public StaticResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
     public void start() {
-        var thread = new Thread(this);
-        thread.setDaemon(true);
-        thread.start();
+        executor = createExecutor();
+        resourceCache = createResourceCache();
+        sessionManager.start();
         stopped = false;
-        log.info("Web Application Server started {} port.", serverSocket.getLocalPort());
+        if (useNio) {
+            startEndpoint();
+        } else {
+            var thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        log.info("Web Application Server started {} port. (virtual threads: {}, nio: {})",
+                serverChannel.socket().getLocalPort(), useVirtualThreads, useNio);
+    }
+
+    private void startEndpoint() {
+        try {
+            endpoint = new NioEndpoint(serverChannel, executor, http11Config.getKeepAliveTimeout(),
+                    channel -> new Http11Processor(channel.socket(), http11Config, resourceCache,
+                            sessionManager));
+            endpoint.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        if (useVirtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-virt-", 1).factory());
+        }
+        final int checkedMaxThreads = checkMaxThreads(maxThreads);
+        final int checkedMinSpareThreads = checkMinSpareThreads(minSpareThreads, checkedMaxThreads);
+        final int checkedMaxQueueSize = checkMaxQueueSize(maxQueueSize);
+        return new ThreadPoolExecutor(checkedMinSpareThreads, checkedMaxThreads, checkedMaxQueueSize,
+                new TaskThreadFactory("http-exec-", true));
+    }
+
+    private StaticResourceCache createResourceCache() {
+        final StaticResourceCache cache;
+        if (cachingAllowed) {
+            cache = new StaticResourceCache(cacheMaxSize * 1024, cacheObjectMaxSize * 1024, cacheTtl,
+                    cacheOffHeapMaxSize * 1024, cacheOffHeapObjectMaxSize * 1024);
+            if (cacheOffHeapMaxSize > 0 && !isMaxDirectMemorySizeSet()) {
+                log.warn("The off-heap cache tier is enabled without -XX:MaxDirectMemorySize; "
+                        + "evicted buffers are freed only when collected, so direct memory may exceed its budget.");
+            }
+        } else {
+            cache = new StaticResourceCache(0, 0, 0);
+        }
+        if (fingerprintResources) {
+            cache.setFingerprints(scanStaticResources());
+        }
+        if (http11Config.isCompression()) {
+            cache.setCompression(http11Config.getCompressionMinSize(), http11Config.getCompressibleMimeTypes());
+        }
+        return cache;
+    }
+
+    private static boolean isMaxDirectMemorySizeSet() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:MaxDirectMemorySize="));
+    }
+
+    private ResourceFingerprints scanStaticResources() {
+        final URL root = getClass().getClassLoader().getResource("static");
+        if (root == null || !"file".equals(root.getProtocol())) {
+            log.warn("Static resources are not in a directory, so they are not fingerprinted.");
+            return null;
+        }
+        try {
+            return ResourceFingerprints.scan(Path.of(root.toURI()));
+        } catch (IOException | URISyntaxException e) {
+            log.warn("Could not fingerprint static resources: {}", e.getMessage());
+            return null;
+        }
     }
 
     @Override
@@ -56,7 +357,7 @@ public class Connector implements Runnable {
 
     private void connect() {
         try {
-            process(serverSocket.accept());
+            process(serverChannel.socket().accept());
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
@@ -66,17 +367,37 @@ public class Connector implements Runnable {
         if (connection == null) {
             return;
         }
-        var processor = new Http11Processor(connection);
-        new Thread(processor).start();
+        var processor = new Http11Processor(connection, http11Config, resourceCache, sessionManager);
+        try {
+            executor.execute(processor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected connection from {}: {}", connection.getInetAddress(), e.getMessage());
+            closeQuietly(connection);
+        }
+    }
+
+    private void closeQuietly(final Socket connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
     }
 
     public void stop() {
         stopped = true;
+        if (endpoint != null) {
+            endpoint.stop();
+        }
         try {
-            serverSocket.close();
+            serverChannel.close();
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        sessionManager.stop();
     }
 
     private int checkPort(final int port) {
@@ -92,4 +413,22 @@ public class Connector implements Runnable {
     private int checkAcceptCount(final int acceptCount) {
         return Math.max(acceptCount, DEFAULT_ACCEPT_COUNT);
     }
+
+    private int checkMaxThreads(final int maxThreads) {
+        if (maxThreads < 1) {
+            return DEFAULT_MAX_THREADS;
+        }
+        return maxThreads;
+    }
+
+    private int checkMinSpareThreads(final int minSpareThreads, final int maxThreads) {
+        return Math.clamp(minSpareThreads, 0, maxThreads);
+    }
+
+    private int checkMaxQueueSize(final int maxQueueSize) {
+        if (maxQueueSize < 1) {
+            return DEFAULT_MAX_QUEUE_SIZE;
+        }
+        return maxQueueSize;
+    }
 }
@@ -5,13 +5,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public class Tomcat {
 
     private static final Logger log = LoggerFactory.getLogger(Tomcat.class);
+    private static final String USE_VIRTUAL_THREADS_PROPERTY = "tomcat.connector.useVirtualThreads";
+    private static final String USE_NIO_PROPERTY = "tomcat.connector.useNio";
+    private static final String SESSION_STORE_PROPERTY = "tomcat.session.store";
+    private static final String DEFAULT_SESSION_STORE = "work/SESSIONS.log";
 
     public void start() {
         var connector = new Connector();
+        connector.setUseVirtualThreads(Boolean.getBoolean(USE_VIRTUAL_THREADS_PROPERTY));
+        connector.setUseNio(Boolean.getBoolean(USE_NIO_PROPERTY));
+        connector.setSessionStoreFile(Path.of(System.getProperty(SESSION_STORE_PROPERTY, DEFAULT_SESSION_STORE)));
         connector.start();
 
         try {
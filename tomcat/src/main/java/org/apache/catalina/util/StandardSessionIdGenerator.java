@@ -0,0 +1,134 @@
+package org.apache.catalina.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.catalina.SessionIdGenerator;
+
+/**
+ * Generates session ids from {@code sessionIdLength} random bytes encoded as
+ * unpadded Base64url, 22 characters for the default 16 bytes.
+ * <p>
+ * A single {@link SecureRandom} is a point of contention when many logins
+ * arrive at once, so each call borrows one from a small pool of slots along
+ * with the scratch buffers it fills. A thread starts probing at a random
+ * slot, so concurrent callers rarely meet; when every slot is taken a new
+ * instance is created and kept if a slot is free on return. Once the pool is
+ * warm the only allocation per id is the returned String.
+ * <p>
+ * Instances use SHA1PRNG, seeded once from the platform source. The default
+ * NativePRNG funnels every instance through one shared, locked reader of
+ * {@code /dev/urandom}, which would defeat the pool.
+ */
+public class StandardSessionIdGenerator implements SessionIdGenerator {
+
+    private static final int DEFAULT_SESSION_ID_LENGTH = 16;
+    private static final String SECURE_RANDOM_ALGORITHM = "SHA1PRNG";
+    private static final byte[] BASE64URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private final int sessionIdLength;
+    private final AtomicReferenceArray<Source> pool;
+    private final int mask;
+
+    public StandardSessionIdGenerator() {
+        this(DEFAULT_SESSION_ID_LENGTH);
+    }
+
+    /**
+     * @param sessionIdLength random bytes per id; 16 gives 128 bits of entropy
+     */
+    public StandardSessionIdGenerator(int sessionIdLength) {
+        if (sessionIdLength < 1) {
+            throw new IllegalArgumentException("sessionIdLength must be positive: " + sessionIdLength);
+        }
+        this.sessionIdLength = sessionIdLength;
+        final int slots = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        this.pool = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+    }
+
+    @Override
+    public String generateSessionId() {
+        final int start = ThreadLocalRandom.current().nextInt();
+        final Source source = borrow(start);
+        try {
+            return source.next();
+        } finally {
+            release(start, source);
+        }
+    }
+
+    @Override
+    public int getSessionIdLength() {
+        return sessionIdLength;
+    }
+
+    private Source borrow(final int start) {
+        for (int i = 0; i <= mask; i++) {
+            final int slot = (start + i) & mask;
+            final Source source = pool.get(slot);
+            if (source != null && pool.compareAndSet(slot, source, null)) {
+                return source;
+            }
+        }
+        return new Source(sessionIdLength);
+    }
+
+    private void release(final int start, final Source source) {
+        for (int i = 0; i <= mask; i++) {
+            final int slot = (start + i) & mask;
+            if (pool.get(slot) == null && pool.compareAndSet(slot, null, source)) {
+                return;
+            }
+        }
+        // every slot is full; let this one go.
+    }
+
+    private static final class Source {
+
+        private final SecureRandom random = createSecureRandom();
+        private final byte[] bytes;
+        private final byte[] encoded;
+
+        private Source(final int length) {
+            this.bytes = new byte[length];
+            this.encoded = new byte[(length * 8 + 5) / 6];
+            // seed now rather than on the first id.
+            random.nextInt();
+        }
+
+        private static SecureRandom createSecureRandom() {
+            try {
+                return SecureRandom.getInstance(SECURE_RANDOM_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+
+        private String next() {
+            random.nextBytes(bytes);
+            int out = 0;
+            int i = 0;
+            for (; i + 3 <= bytes.length; i += 3) {
+                final int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | bytes[i + 2] & 0xff;
+                encoded[out++] = BASE64URL[bits >>> 18];
+                encoded[out++] = BASE64URL[bits >>> 12 & 0x3f];
+                encoded[out++] = BASE64URL[bits >>> 6 & 0x3f];
+                encoded[out++] = BASE64URL[bits & 0x3f];
+            }
+            final int remaining = bytes.length - i;
+            if (remaining > 0) {
+                final int bits = (bytes[i] & 0xff) << 16 | (remaining == 2 ? (bytes[i + 1] & 0xff) << 8 : 0);
+                encoded[out++] = BASE64URL[bits >>> 18];
+                encoded[out++] = BASE64URL[bits >>> 12 & 0x3f];
+                if (remaining == 2) {
+                    encoded[out++] = BASE64URL[bits >>> 6 & 0x3f];
+                }
+            }
+            return new String(encoded, 0, out, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.apache.catalina.webresources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.apache.tomcat.util.http.FastHttpDateFormat;
+
+/**
+ * A static file as the cache holds it: its metadata and, when it is small
+ * enough, its bytes, either in a heap array or in a direct buffer outside the
+ * heap.
+ * <p>
+ * The entity tag of bytes held in memory is a hash of them. A file that is
+ * sent from disk is never hashed; its tag is built from its size and
+ * modification time, so an edit that changes neither keeps the old tag.
+ */
+public class CachedResource {
+
+    private final Path path;
+    private final String contentType;
+    private final long contentLength;
+    private final long lastModified;
+    private final long fileSize;
+    private final byte[] content;
+    private final ByteBuffer directContent;
+    private final String lastModifiedHttp;
+    private byte[] gzipContent;
+    private volatile String eTag;
+    private volatile long validatedAt;
+
+    private CachedResource(final Path path, final String contentType, final long contentLength,
+                           final long lastModified, final long fileSize, final byte[] content,
+                           final ByteBuffer directContent) {
+        this.path = path;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.lastModified = lastModified;
+        this.fileSize = fileSize;
+        this.content = content;
+        this.directContent = directContent;
+        this.lastModifiedHttp = FastHttpDateFormat.formatDate(lastModified);
+        this.validatedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Reads the metadata of a file, and its bytes if it is no larger than
+     * {@code objectMaxSize}.
+     */
+    public static CachedResource load(final Path path, final int objectMaxSize) throws IOException {
+        return load(path, objectMaxSize, 0);
+    }
+
+    /**
+     * Reads the metadata of a file and its bytes: into the heap up to
+     * {@code objectMaxSize}, otherwise into a direct buffer up to
+     * {@code directObjectMaxSize}. Larger files keep only their metadata.
+     */
+    public static CachedResource load(final Path path, final int objectMaxSize, final int directObjectMaxSize)
+            throws IOException {
+        return load(path, objectMaxSize, directObjectMaxSize, null);
+    }
+
+    /**
+     * Like {@link #load(Path, int, int)}, but an HTML page is always read into
+     * the heap and has its references rewritten to fingerprinted URLs. The
+     * length, entity tag and ranges then describe the rewritten page.
+     */
+    public static CachedResource load(final Path path, final int objectMaxSize, final int directObjectMaxSize,
+                                      final ResourceFingerprints fingerprints) throws IOException {
+        final var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+        final String contentType = contentType(path);
+        if (fingerprints != null && contentType.startsWith("text/html")) {
+            final byte[] content = fingerprints.rewrite(Files.readAllBytes(path));
+            return new CachedResource(path, contentType, content.length, lastModified, size, content, null);
+        }
+        if (size <= objectMaxSize) {
+            final byte[] content = Files.readAllBytes(path);
+            return new CachedResource(path, contentType, content.length, lastModified, size, content, null);
+        }
+        if (size <= directObjectMaxSize) {
+            final ByteBuffer directContent = readDirect(path, (int) size);
+            return new CachedResource(path, contentType, directContent.remaining(), lastModified, size, null,
+                    directContent);
+        }
+        return new CachedResource(path, contentType, size, lastModified, size, null, null);
+    }
+
+    private static ByteBuffer readDirect(final Path path, final int size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        try (final var file = FileChannel.open(path)) {
+            while (buffer.hasRemaining() && file.read(buffer) >= 0) {
+                // read until the buffer is full or the file ends early
+            }
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    private static String contentType(final Path path) throws IOException {
+        final String contentType = Files.probeContentType(path);
+        if (contentType == null) {
+            return "application/octet-stream";
+        }
+        if (contentType.startsWith("text/")) {
+            return contentType + ";charset=utf-8";
+        }
+        return contentType;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns {@link #getLastModified()} formatted for a Last-Modified header.
+     */
+    public String getLastModifiedHttp() {
+        return lastModifiedHttp;
+    }
+
+    /**
+     * Returns a strong entity tag. For content held in memory it is derived
+     * from a hash of the bytes, computed on first use and kept for as long as
+     * this entry lives. A file sent from disk gets its size and modification
+     * time instead, which are checked anyway before the entry is reused;
+     * hashing it would read the whole file again for every entry that is not
+     * kept, e.g. when caching is disabled.
+     */
+    public String getETag() {
+        String value = eTag;
+        if (value == null) {
+            value = "\"" + validator() + "\"";
+            eTag = value;
+        }
+        return value;
+    }
+
+    private String validator() {
+        if (content != null) {
+            return ContentHashes.of(content);
+        }
+        if (directContent != null) {
+            return ContentHashes.of(directContent);
+        }
+        return Long.toHexString(fileSize) + "-" + Long.toHexString(lastModified);
+    }
+
+
+    /**
+     * Returns the entity tag of the gzip variant. A representation with a
+     * different content coding needs its own strong tag.
+     */
+    public String getGzipETag() {
+        final String identity = getETag();
+        return identity.substring(0, identity.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Returns the gzip compressed bytes, or {@code null} if this resource has
+     * no compressed variant. The array is shared and must not be modified.
+     */
+    public byte[] getGzipContent() {
+        return gzipContent;
+    }
+
+    /**
+     * Compresses the bytes held in memory once so that every later response
+     * can send them as they are. A variant that would not be smaller is not
+     * kept. Must be called before the resource is shared.
+     */
+    void compress() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) (contentLength / 4));
+        try (final var gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            if (content != null) {
+                gzip.write(content);
+            } else if (directContent != null) {
+                final ByteBuffer source = directContent.duplicate();
+                final byte[] chunk = new byte[8192];
+                while (source.hasRemaining()) {
+                    final int length = Math.min(chunk.length, source.remaining());
+                    source.get(chunk, 0, length);
+                    gzip.write(chunk, 0, length);
+                }
+            } else {
+                return;
+            }
+        }
+        if (compressed.size() < contentLength) {
+            gzipContent = compressed.toByteArray();
+        }
+    }
+
+    /**
+     * Returns the file's bytes held in the heap, or {@code null}. The array is
+     * shared and must not be modified.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Returns a read-only view of the file's bytes held outside the heap, or
+     * {@code null}. Every call returns a new view, so concurrent responses do
+     * not share a position and nothing is copied.
+     */
+    public ByteBuffer getDirectContent() {
+        if (directContent == null) {
+            return null;
+        }
+        return directContent.duplicate();
+    }
+
+    /**
+     * Returns a read-only view of {@code length} bytes starting at
+     * {@code start}. Cached bytes are wrapped without copying; for a file
+     * that is not held in memory only that region is read into the heap. It
+     * is not mapped: a mapped file truncated while the response is written
+     * would crash the JVM with SIGBUS instead of failing the request.
+     */
+    public ByteBuffer slice(final long start, final long length) throws IOException {
+        if (content != null) {
+            return ByteBuffer.wrap(content, (int) start, (int) length).slice().asReadOnlyBuffer();
+        }
+        if (directContent != null) {
+            return directContent.slice((int) start, (int) length);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        try (final var file = FileChannel.open(path)) {
+            while (buffer.hasRemaining()) {
+                if (file.read(buffer, start + buffer.position()) < 0) {
+                    throw new EOFException("File ended before " + length + " bytes were read.");
+                }
+            }
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    boolean isDirect() {
+        return directContent != null;
+    }
+
+    long getValidatedAt() {
+        return validatedAt;
+    }
+
+    /**
+     * Checks the file again and records the time if it has not changed.
+     */
+    boolean revalidate(final long now) {
+        try {
+            final var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.size() != fileSize || attributes.lastModifiedTime().toMillis() != lastModified) {
+                return false;
+            }
+        } catch (IOException e) {
+            // deleted or unreadable; let the caller look it up again.
+            return false;
+        }
+        validatedAt = now;
+        return true;
+    }
+}
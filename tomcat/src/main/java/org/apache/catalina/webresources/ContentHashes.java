@@ -0,0 +1,58 @@
+package org.apache.catalina.webresources;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Short, URL-safe content hashes: the first 128 bits of SHA-256 in base64url.
+ * They serve both as entity tags and as fingerprints in resource URLs.
+ */
+final class ContentHashes {
+
+    private static final int HASH_BYTES = 16;
+    private static final int READ_SIZE = 8192;
+
+    static String of(final byte[] content) {
+        final MessageDigest digest = sha256();
+        digest.update(content);
+        return encode(digest);
+    }
+
+    static String of(final ByteBuffer content) {
+        final MessageDigest digest = sha256();
+        digest.update(content.duplicate());
+        return encode(digest);
+    }
+
+    static String of(final Path path) throws IOException {
+        final MessageDigest digest = sha256();
+        try (final var file = FileChannel.open(path)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+            while (file.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+        }
+        return encode(digest);
+    }
+
+    private static String encode(final MessageDigest digest) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), HASH_BYTES));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ContentHashes() {}
+}
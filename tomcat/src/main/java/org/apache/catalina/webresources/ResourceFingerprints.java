@@ -0,0 +1,112 @@
+package org.apache.catalina.webresources;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content hashes of the static files, taken once at startup. A file is also
+ * served as {@code /resources/{hash}/path}; since that URL changes only when
+ * the content does, clients may cache it for good. References to such files
+ * in HTML pages are rewritten to their fingerprinted URLs as the pages are
+ * loaded.
+ */
+public class ResourceFingerprints {
+
+    public static final String PREFIX = "/resources/";
+
+    private static final Pattern REFERENCE = Pattern.compile("\\b(src|href)=\"([^\"?#:]+)\"");
+
+    private final Map<String, String> hashes;
+
+    private ResourceFingerprints(final Map<String, String> hashes) {
+        this.hashes = hashes;
+    }
+
+    /**
+     * Hashes every file below {@code root} except the HTML pages, which are
+     * what refers to the others.
+     */
+    public static ResourceFingerprints scan(final Path root) throws IOException {
+        final Map<String, String> hashes = new HashMap<>();
+        try (final Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                final String path = "/" + root.relativize(file).toString().replace('\\', '/');
+                if (!path.endsWith(".html")) {
+                    hashes.put(path, ContentHashes.of(file));
+                }
+            }
+        }
+        return new ResourceFingerprints(hashes);
+    }
+
+    /**
+     * Returns the fingerprinted URL of a resource path, or {@code null} if the
+     * path is not a known static file.
+     */
+    public String toFingerprintedUri(final String path) {
+        final String hash = hashes.get(path);
+        if (hash == null) {
+            return null;
+        }
+        return PREFIX + hash + path;
+    }
+
+    /**
+     * Returns whether the hash in a fingerprinted URL is the current hash of
+     * the file it names.
+     */
+    public boolean isCurrent(final String uri) {
+        final String path = stripFingerprint(uri);
+        final String hash = hashes.get(path);
+        return hash != null && uri.length() == PREFIX.length() + hash.length() + path.length()
+                && uri.startsWith(hash, PREFIX.length());
+    }
+
+    /**
+     * Returns the resource path named by a fingerprinted URL, or the URI
+     * itself if it is not one.
+     */
+    public static String stripFingerprint(final String uri) {
+        if (!uri.startsWith(PREFIX)) {
+            return uri;
+        }
+        final int slash = uri.indexOf('/', PREFIX.length());
+        if (slash < 0) {
+            return uri;
+        }
+        return uri.substring(slash);
+    }
+
+    /**
+     * Rewrites {@code src} and {@code href} references to known static files
+     * in a page served from the root. Other references are left alone.
+     */
+    public byte[] rewrite(final byte[] html) {
+        final String page = new String(html, StandardCharsets.UTF_8);
+        final Matcher matcher = REFERENCE.matcher(page);
+        final StringBuilder rewritten = new StringBuilder(page.length() + 256);
+        boolean changed = false;
+        while (matcher.find()) {
+            final String reference = matcher.group(2);
+            final String path = reference.startsWith("/") ? reference : "/" + reference;
+            final String fingerprinted = reference.startsWith("//") ? null : toFingerprintedUri(path);
+            if (fingerprinted == null) {
+                continue;
+            }
+            matcher.appendReplacement(rewritten, matcher.group(1) + "=\"" + Matcher.quoteReplacement(fingerprinted) + "\"");
+            changed = true;
+        }
+        if (!changed) {
+            return html;
+        }
+        matcher.appendTail(rewritten);
+        return rewritten.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,259 @@
+package org.apache.catalina.webresources;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the static file found for a request URI so that repeated
+ * requests skip the class path lookup, the file checks and the read. Files up
+ * to the object size limit are held in memory; larger ones keep only their
+ * metadata and are still sent from disk. Once the byte budget is exceeded the
+ * least recently used entries are evicted, and an entry older than the TTL is
+ * checked against its file before it is used again.
+ * <p>
+ * An optional off-heap tier keeps files above the object size limit in direct
+ * buffers, so large assets stay out of the garbage collected heap. It has its
+ * own budget and evicts its least recently used entries independently. That
+ * budget bounds what the tier holds, not the process: an evicted buffer is
+ * released only once the garbage collector finds it unreachable, which a heap
+ * that is rarely collected may take long to do. Run with
+ * {@code -XX:MaxDirectMemorySize} set above the budget; when direct memory
+ * runs out, the JVM collects to reclaim such buffers before failing.
+ * <p>
+ * Compressible files held in memory can also get a gzip variant, made once
+ * when they are loaded and counted against the heap budget with them.
+ */
+public class StaticResourceCache {
+
+    private static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+    private static final int DEFAULT_OBJECT_MAX_SIZE = 512 * 1024;
+    private static final long DEFAULT_TTL = 5_000;
+
+    // rough cost of an entry, its key and metadata, so that entries without
+    // content still count against the budget.
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final long maxSize;
+    private final int objectMaxSize;
+    private final long ttl;
+    private final long offHeapMaxSize;
+    private final int offHeapObjectMaxSize;
+    private ResourceFingerprints fingerprints;
+    private int compressionMinSize = -1;
+    private Set<String> compressibleMimeTypes = Set.of();
+    private final Map<String, CachedResource> resources = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long offHeapSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder offHeapHitCount = new LongAdder();
+    private final LongAdder offHeapMissCount = new LongAdder();
+    private final LongAdder offHeapEvictionCount = new LongAdder();
+
+    public StaticResourceCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_OBJECT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    /**
+     * @param maxSize bytes the cache may hold in total; 0 disables caching
+     * @param objectMaxSize largest file, in bytes, whose content is held in memory
+     * @param ttl milliseconds an entry is trusted before its file is checked again
+     */
+    public StaticResourceCache(final long maxSize, final int objectMaxSize, final long ttl) {
+        this(maxSize, objectMaxSize, ttl, 0, 0);
+    }
+
+    /**
+     * @param offHeapMaxSize bytes of direct buffers the off-heap tier may hold; 0 disables it
+     * @param offHeapObjectMaxSize largest file, in bytes, kept in the off-heap tier
+     */
+    public StaticResourceCache(final long maxSize, final int objectMaxSize, final long ttl,
+                               final long offHeapMaxSize, final int offHeapObjectMaxSize) {
+        this.maxSize = maxSize;
+        this.objectMaxSize = (int) Math.min(objectMaxSize, maxSize);
+        this.ttl = ttl;
+        this.offHeapMaxSize = maxSize > 0 ? offHeapMaxSize : 0;
+        this.offHeapObjectMaxSize = (int) Math.min(offHeapObjectMaxSize, this.offHeapMaxSize);
+    }
+
+    /**
+     * Rewrites references in the HTML pages this cache loads to the
+     * fingerprinted URLs of the static files. Must be set before the cache is
+     * shared between threads.
+     */
+    public void setFingerprints(final ResourceFingerprints fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    public ResourceFingerprints getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * Keeps a gzip variant of every file held in memory that is at least
+     * {@code minSize} bytes long and has one of the given MIME types. Must be
+     * set before the cache is shared between threads.
+     *
+     * @param minSize smallest file, in bytes, worth compressing
+     * @param mimeTypes MIME types without parameters, e.g. {@code text/css}
+     */
+    public void setCompression(final int minSize, final Set<String> mimeTypes) {
+        this.compressionMinSize = minSize;
+        this.compressibleMimeTypes = Set.copyOf(mimeTypes);
+    }
+
+    /**
+     * Returns the cached resource for a URI, or {@code null} if there is none
+     * or its file has changed since it was loaded.
+     */
+    public CachedResource get(final String uri) {
+        final CachedResource resource;
+        synchronized (this) {
+            resource = resources.get(uri);
+        }
+        if (resource == null) {
+            missCount.increment();
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        if (now - resource.getValidatedAt() < ttl || resource.revalidate(now)) {
+            hitCount.increment();
+            if (resource.isDirect()) {
+                offHeapHitCount.increment();
+            }
+            return resource;
+        }
+        remove(uri, resource);
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * Loads the file found for a URI and caches it if it fits the budget.
+     */
+    public CachedResource load(final String uri, final Path path) throws IOException {
+        final CachedResource resource = CachedResource.load(path, objectMaxSize, offHeapObjectMaxSize, fingerprints);
+        if (isCompressible(resource)) {
+            resource.compress();
+        }
+        if (resource.isDirect()) {
+            offHeapMissCount.increment();
+        }
+        put(uri, resource);
+        return resource;
+    }
+
+    private boolean isCompressible(final CachedResource resource) {
+        // without a cache the variant would be made again for every request.
+        if (maxSize == 0 || compressionMinSize < 0 || resource.getContentLength() < compressionMinSize) {
+            return false;
+        }
+        final String contentType = resource.getContentType();
+        final int semicolon = contentType.indexOf(';');
+        return compressibleMimeTypes.contains(semicolon < 0 ? contentType : contentType.substring(0, semicolon));
+    }
+
+    private synchronized void put(final String uri, final CachedResource resource) {
+        final long weight = weight(uri, resource);
+        final long offHeapWeight = offHeapWeight(resource);
+        if (weight > maxSize || offHeapWeight > offHeapMaxSize) {
+            return;
+        }
+        final CachedResource previous = resources.put(uri, resource);
+        if (previous != null) {
+            size -= weight(uri, previous);
+            offHeapSize -= offHeapWeight(previous);
+        }
+        size += weight;
+        offHeapSize += offHeapWeight;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, CachedResource>> eldest = resources.entrySet().iterator();
+        while (size > maxSize || offHeapSize > offHeapMaxSize) {
+            final Map.Entry<String, CachedResource> entry = eldest.next();
+            if (size <= maxSize && !entry.getValue().isDirect()) {
+                // only the off-heap tier is over budget; keep heap entries.
+                continue;
+            }
+            size -= weight(entry.getKey(), entry.getValue());
+            offHeapSize -= offHeapWeight(entry.getValue());
+            eldest.remove();
+            evictionCount.increment();
+            if (entry.getValue().isDirect()) {
+                offHeapEvictionCount.increment();
+            }
+        }
+    }
+
+    private synchronized void remove(final String uri, final CachedResource resource) {
+        if (resources.remove(uri, resource)) {
+            size -= weight(uri, resource);
+            offHeapSize -= offHeapWeight(resource);
+        }
+    }
+
+    public synchronized int getEntryCount() {
+        return resources.size();
+    }
+
+    /**
+     * Returns the bytes counted against the heap budget.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the bytes held in direct buffers by the off-heap tier.
+     */
+    public synchronized long getOffHeapSize() {
+        return offHeapSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getOffHeapHitCount() {
+        return offHeapHitCount.sum();
+    }
+
+    /**
+     * Returns how often a file had to be read into the off-heap tier.
+     */
+    public long getOffHeapMissCount() {
+        return offHeapMissCount.sum();
+    }
+
+    public long getOffHeapEvictionCount() {
+        return offHeapEvictionCount.sum();
+    }
+
+    private static long weight(final String uri, final CachedResource resource) {
+        final byte[] content = resource.getContent();
+        final byte[] gzipContent = resource.getGzipContent();
+        return ENTRY_OVERHEAD + 2L * uri.length() + (content == null ? 0 : content.length)
+                + (gzipContent == null ? 0 : gzipContent.length);
+    }
+
+    private static long offHeapWeight(final CachedResource resource) {
+        return resource.isDirect() ? resource.getContentLength() : 0;
+    }
+}
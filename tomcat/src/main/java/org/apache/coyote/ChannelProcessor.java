@@ -0,0 +1,37 @@
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Processor contract for non-blocking endpoints. Unlike {@link Processor} it
+ * never owns a blocking {@link java.net.Socket}: the endpoint calls it whenever
+ * new bytes have been read from the channel, and the processor decides whether
+ * the connection should be polled again.
+ */
+public interface ChannelProcessor {
+
+    enum SocketState {
+        /** Keep the connection and poll it for more data. */
+        OPEN,
+        /** Close the connection. */
+        CLOSED
+    }
+
+    /**
+     * Process the bytes read so far for a connection.
+     *
+     * @param channel the connection, in non-blocking mode
+     * @param input   buffer in read mode holding the bytes just read; the
+     *                processor consumes all of them, keeping an incomplete
+     *                request in its own buffer and enforcing size limits
+     *                on it, since the endpoint reuses this buffer
+     *
+     * @exception IOException if an input/output error occurs while writing
+     *  the response
+     *
+     * @return the state the endpoint should leave the connection in
+     */
+    SocketState process(SocketChannel channel, ByteBuffer input) throws IOException;
+}
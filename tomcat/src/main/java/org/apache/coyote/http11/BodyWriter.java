@@ -0,0 +1,18 @@
+package org.apache.coyote.http11;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Produces a response body while the response is being sent, for output that
+ * is large or generated and should not be held in memory first.
+ */
+@FunctionalInterface
+public interface BodyWriter {
+
+    /**
+     * Writes the body. The stream frames what it is given and must not be
+     * closed; an exception aborts the response and closes the connection.
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
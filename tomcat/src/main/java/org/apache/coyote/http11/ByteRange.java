@@ -0,0 +1,113 @@
+package org.apache.coyote.http11;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One satisfiable range of a {@code Range: bytes=...} request header, with
+ * both ends inclusive as in {@code Content-Range}.
+ */
+public final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+    private static final int MAX_RANGES = 16;
+    private static final int MAX_DIGITS = 18;
+
+    private final long start;
+    private final long end;
+
+    private ByteRange(final long start, final long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a Range header against a representation of {@code length} bytes.
+     *
+     * @return the satisfiable ranges in request order, an empty list if none
+     *         is satisfiable, or {@code null} if the header has to be ignored
+     *         and the whole representation sent
+     */
+    public static List<ByteRange> parse(final String header, final long length) {
+        if (!header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        final String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        final List<ByteRange> ranges = new ArrayList<>(specs.length);
+        long total = 0;
+        boolean anySpec = false;
+        for (String spec : specs) {
+            spec = spec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            anySpec = true;
+            final int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            final long first = parseNumber(spec.substring(0, dash));
+            final long last = parseNumber(spec.substring(dash + 1));
+            final ByteRange range;
+            if (dash == 0) {
+                if (last < 0) {
+                    return null;
+                }
+                range = last == 0 || length == 0 ? null : new ByteRange(Math.max(0, length - last), length - 1);
+            } else {
+                if (first < 0 || (dash < spec.length() - 1 && (last < 0 || last < first))) {
+                    return null;
+                }
+                final long end = dash == spec.length() - 1 ? length - 1 : Math.min(last, length - 1);
+                range = first >= length ? null : new ByteRange(first, end);
+            }
+            if (range != null) {
+                ranges.add(range);
+                total += range.getLength();
+            }
+        }
+        if (!anySpec) {
+            // a range set needs at least one range-spec; without one the header is invalid.
+            return null;
+        }
+        if (total > length) {
+            // overlapping ranges would cost more than the representation itself.
+            return null;
+        }
+        return ranges;
+    }
+
+    private static long parseNumber(final String value) {
+        if (value.isEmpty() || value.length() > MAX_DIGITS) {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Returns the value of a {@code Content-Range} header for this range.
+     */
+    public String toContentRange(final long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+}
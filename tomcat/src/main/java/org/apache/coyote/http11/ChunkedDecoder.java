@@ -0,0 +1,145 @@
+package org.apache.coyote.http11;
+
+/**
+ * Tracks the framing of a {@code Transfer-Encoding: chunked} body. It walks
+ * over chunk-size lines, chunk delimiters and trailers, and stops in front of
+ * each run of data bytes so the caller can copy them without this class
+ * buffering anything.
+ * <p>
+ * The decoded length is checked against the body limit as each chunk-size
+ * line ends, before any of that chunk's data is read, and extensions and
+ * trailers are capped so framing alone cannot grow the buffer without bound.
+ */
+final class ChunkedDecoder {
+
+    private static final int MAX_CHUNK_SIZE_DIGITS = 8;
+    private static final int MAX_EXTENSION_SIZE = 8 * 1024;
+    private static final int MAX_TRAILER_SIZE = 8 * 1024;
+
+    private enum ChunkState {
+        SIZE, EXTENSION, DATA, DATA_END, TRAILER_START, TRAILER, DONE
+    }
+
+    private ChunkState state = ChunkState.SIZE;
+    private int chunkSize;
+    private int sizeDigits;
+    private int dataRemaining;
+    private long dataLength;
+    private int extensionSize;
+    private int trailerSize;
+    private final int maxDataLength;
+
+    /**
+     * @param maxDataLength the decoded bytes allowed in the body; -1 means unlimited
+     */
+    ChunkedDecoder(final int maxDataLength) {
+        this.maxDataLength = maxDataLength;
+    }
+
+    /**
+     * Consumes framing bytes from {@code buf[pos, end)} until data bytes or the
+     * end of the body are reached.
+     *
+     * @return the position of the first unconsumed byte
+     */
+    int skipFraming(final byte[] buf, int pos, final int end) {
+        while (pos < end && state != ChunkState.DATA && state != ChunkState.DONE) {
+            final byte b = buf[pos++];
+            switch (state) {
+                case SIZE -> readSize(b);
+                case EXTENSION -> {
+                    if (b == '\n') {
+                        endSizeLine();
+                    } else if (++extensionSize > MAX_EXTENSION_SIZE) {
+                        throw new HttpParseException("Chunk extension too large.");
+                    }
+                }
+                case DATA_END -> {
+                    if (b == '\n') {
+                        state = ChunkState.SIZE;
+                    } else if (b != '\r') {
+                        throw new HttpParseException("Missing CRLF after chunk data.");
+                    }
+                }
+                case TRAILER_START -> {
+                    if (b == '\n') {
+                        state = ChunkState.DONE;
+                    } else if (b != '\r') {
+                        state = ChunkState.TRAILER;
+                        countTrailerByte();
+                    }
+                }
+                case TRAILER -> {
+                    if (b == '\n') {
+                        state = ChunkState.TRAILER_START;
+                    }
+                    countTrailerByte();
+                }
+                default -> throw new IllegalStateException(state.name());
+            }
+        }
+        return pos;
+    }
+
+    private void readSize(final byte b) {
+        final int digit = Character.digit(b, 16);
+        if (digit >= 0) {
+            if (++sizeDigits > MAX_CHUNK_SIZE_DIGITS) {
+                throw new HttpParseException("Chunk size too large.");
+            }
+            chunkSize = chunkSize * 16 + digit;
+            return;
+        }
+        if (sizeDigits == 0) {
+            throw new HttpParseException("Invalid chunk size.");
+        }
+        if (b == '\n') {
+            endSizeLine();
+        } else if (b == ';' || b == ' ' || b == '\t' || b == '\r') {
+            state = ChunkState.EXTENSION;
+        } else {
+            throw new HttpParseException("Invalid chunk size.");
+        }
+    }
+
+    private void countTrailerByte() {
+        if (++trailerSize > MAX_TRAILER_SIZE) {
+            throw new HttpParseException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "Chunked trailer too large.");
+        }
+    }
+
+    private void endSizeLine() {
+        if (chunkSize < 0) {
+            throw new HttpParseException("Chunk size too large.");
+        }
+        dataLength += chunkSize;
+        if (maxDataLength >= 0 && dataLength > maxDataLength) {
+            throw new HttpParseException(HttpStatus.CONTENT_TOO_LARGE,
+                    "Chunked body exceeds " + maxDataLength + " bytes.");
+        }
+        extensionSize = 0;
+        dataRemaining = chunkSize;
+        state = chunkSize == 0 ? ChunkState.TRAILER_START : ChunkState.DATA;
+        chunkSize = 0;
+        sizeDigits = 0;
+    }
+
+    boolean isData() {
+        return state == ChunkState.DATA;
+    }
+
+    boolean isDone() {
+        return state == ChunkState.DONE;
+    }
+
+    int getDataRemaining() {
+        return dataRemaining;
+    }
+
+    void consumeData(final int length) {
+        dataRemaining -= length;
+        if (dataRemaining == 0) {
+            state = ChunkState.DATA_END;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.apache.coyote.http11;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps sessions in a local append-only log so that they outlive a restart.
+ * Every change is appended as one record: the whole session when it is added
+ * or its attributes change, only its id when it is removed. Nothing is read
+ * back while the server runs; sessions are served from the manager's memory.
+ * Each record carries its length and a CRC32, so a record torn by a crash
+ * ends the log instead of corrupting what follows.
+ * <p>
+ * Access times are not logged per request. {@link #compact} rewrites the log
+ * from the sessions still alive, with their current access times, into a
+ * temporary file that then replaces it; the manager does so periodically and
+ * when it stops.
+ */
+public class FileSessionStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSessionStore.class);
+
+    private static final byte SAVE = 1;
+    private static final byte REMOVE = 2;
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+
+    private final Path file;
+    private FileChannel channel;
+    private int recordCount;
+
+    public FileSessionStore(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the log and returns, by session id, the last record of every
+     * session it still holds, undecoded; see {@link #decode}. A torn record
+     * at the end is cut off so that later records follow the last good one.
+     */
+    synchronized Map<String, byte[]> load() throws IOException {
+        open();
+        Map<String, byte[]> records = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int valid = 0;
+        int count = 0;
+        while (buffer.remaining() >= HEADER_LENGTH) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            if (checksum != checksum(record)) {
+                break;
+            }
+            String id = readId(record);
+            if (record[0] == SAVE) {
+                records.put(id, record);
+            } else {
+                records.remove(id);
+            }
+            valid = buffer.position();
+            count++;
+        }
+        if (valid < buffer.capacity()) {
+            log.warn("Discarding {} bytes of a torn record at the end of {}.",
+                    buffer.capacity() - valid, file);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        recordCount = count;
+        return records;
+    }
+
+    /**
+     * Appends the current state of a session.
+     */
+    synchronized void save(Session session) throws IOException {
+        open();
+        // encoded under the lock, so a later record never holds older attributes.
+        byte[] record = encode(session);
+        if (record != null) {
+            append(record);
+        }
+    }
+
+    /**
+     * Appends the removal of a session.
+     */
+    synchronized void remove(String id) throws IOException {
+        open();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(id.length() + 3);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(REMOVE);
+        out.writeUTF(id);
+        append(bytes.toByteArray());
+    }
+
+    private void append(byte[] record) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(record.length).putInt(checksum(record)).flip();
+        ByteBuffer[] buffers = {header, ByteBuffer.wrap(record)};
+        while (buffers[1].hasRemaining()) {
+            channel.write(buffers);
+        }
+        recordCount++;
+    }
+
+    /**
+     * Rewrites the log so that it holds one record per session: the valid
+     * ones among {@code sessions} and the records of sessions not yet
+     * restored.
+     */
+    synchronized void compact(Collection<Session> sessions, Collection<byte[]> unrestored) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), 64 * 1024);
+            DataOutputStream data = new DataOutputStream(stream);
+            for (Session session : sessions) {
+                byte[] record = encode(session);
+                if (record != null) {
+                    writeRecord(data, record);
+                    count++;
+                }
+            }
+            for (byte[] record : unrestored) {
+                writeRecord(data, record);
+                count++;
+            }
+            data.flush();
+            // the new log must be on disk before it replaces the old one.
+            out.force(true);
+        }
+        close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+        channel.position(channel.size());
+        recordCount = count;
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.writeInt(checksum(record));
+        out.write(record);
+    }
+
+    /**
+     * Returns the number of records in the log, live or superseded.
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    private void open() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Returns the record of a session, or {@code null} if it is invalid.
+     */
+    private static byte[] encode(Session session) throws IOException {
+        if (!session.isValid()) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SAVE);
+        if (!session.writeObjectData(out)) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Turns a record returned by {@link #load} back into a session.
+     */
+    static Session decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        return Session.readObjectData(in);
+    }
+
+    /**
+     * Tells from a record returned by {@link #load} whether its session had
+     * expired by {@code now}, without decoding its attributes.
+     */
+    static boolean isExpired(byte[] record, long now) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        in.readUTF();
+        in.readLong();
+        long lastAccessedTime = in.readLong();
+        int maxInactiveInterval = in.readInt();
+        return maxInactiveInterval > 0 && now - lastAccessedTime >= maxInactiveInterval * 1000L;
+    }
+
+    private static String readId(byte[] record) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1)).readUTF();
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,229 @@
+package org.apache.coyote.http11;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import org.apache.coyote.http11.filters.DeflaterPool;
+
+/**
+ * Protocol level settings shared by every {@link Http11Processor} of a connector.
+ */
+public class Http11Config {
+
+    private static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 20_000;
+    private static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 100;
+    private static final int DEFAULT_MAX_HTTP_HEADER_SIZE = 8 * 1024;
+    private static final int DEFAULT_MAX_HEADER_COUNT = 100;
+    private static final int DEFAULT_MAX_URI_LENGTH = 4 * 1024;
+    private static final int DEFAULT_MAX_POST_SIZE = 2 * 1024 * 1024;
+    private static final int DEFAULT_SENDFILE_SIZE = 48 * 1024;
+    private static final int DEFAULT_COMPRESSION_MIN_SIZE = 2048;
+    private static final int DEFAULT_CHUNK_FLUSH_THRESHOLD = 8 * 1024;
+    private static final String DEFAULT_COMPRESSIBLE_MIME_TYPE =
+            "text/html,text/xml,text/plain,text/css,text/javascript,application/javascript,application/json,application/xml,image/svg+xml";
+
+    private int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    private int maxKeepAliveRequests = DEFAULT_MAX_KEEP_ALIVE_REQUESTS;
+    private int maxHttpHeaderSize = DEFAULT_MAX_HTTP_HEADER_SIZE;
+    private int maxHeaderCount = DEFAULT_MAX_HEADER_COUNT;
+    private int maxUriLength = DEFAULT_MAX_URI_LENGTH;
+    private int maxPostSize = DEFAULT_MAX_POST_SIZE;
+    private boolean useSendfile = true;
+    private int sendfileSize = DEFAULT_SENDFILE_SIZE;
+    private boolean compression = true;
+    private int compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+    private Set<String> compressibleMimeTypes = parseMimeTypes(DEFAULT_COMPRESSIBLE_MIME_TYPE);
+    private int maxActiveDeflaters = Runtime.getRuntime().availableProcessors();
+    private DeflaterPool deflaterPool;
+    private int chunkFlushThreshold = DEFAULT_CHUNK_FLUSH_THRESHOLD;
+
+    /**
+     * Milliseconds an idle persistent connection is kept before it is closed.
+     */
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(final int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Requests served on one connection before it is closed; -1 means unlimited
+     * and 1 disables keep-alive.
+     */
+    public int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    public void setMaxKeepAliveRequests(final int maxKeepAliveRequests) {
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+    }
+
+    /**
+     * Bytes allowed for the request line and headers together.
+     */
+    public int getMaxHttpHeaderSize() {
+        return maxHttpHeaderSize;
+    }
+
+    public void setMaxHttpHeaderSize(final int maxHttpHeaderSize) {
+        this.maxHttpHeaderSize = maxHttpHeaderSize;
+    }
+
+    /**
+     * Header lines allowed in one request; -1 means unlimited.
+     */
+    public int getMaxHeaderCount() {
+        return maxHeaderCount;
+    }
+
+    public void setMaxHeaderCount(final int maxHeaderCount) {
+        this.maxHeaderCount = maxHeaderCount;
+    }
+
+    /**
+     * Bytes allowed for the request target, query string included.
+     */
+    public int getMaxUriLength() {
+        return maxUriLength;
+    }
+
+    public void setMaxUriLength(final int maxUriLength) {
+        this.maxUriLength = maxUriLength;
+    }
+
+    /**
+     * Bytes allowed for a request body; -1 means unlimited.
+     */
+    public int getMaxPostSize() {
+        return maxPostSize;
+    }
+
+    public void setMaxPostSize(final int maxPostSize) {
+        this.maxPostSize = maxPostSize;
+    }
+
+    /**
+     * Whether static files may be sent with {@code FileChannel.transferTo}
+     * when the connection has a socket channel.
+     */
+    public boolean isUseSendfile() {
+        return useSendfile;
+    }
+
+    public void setUseSendfile(final boolean useSendfile) {
+        this.useSendfile = useSendfile;
+    }
+
+    /**
+     * Smallest file, in bytes, that is sent with sendfile. Smaller files are
+     * copied behind the response head so they leave in a single write.
+     */
+    public int getSendfileSize() {
+        return sendfileSize;
+    }
+
+    public void setSendfileSize(final int sendfileSize) {
+        this.sendfileSize = sendfileSize;
+    }
+
+    /**
+     * Whether responses are gzip compressed for clients that accept it.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(final boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Smallest body, in bytes, that is compressed.
+     */
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public void setCompressionMinSize(final int compressionMinSize) {
+        this.compressionMinSize = Math.max(compressionMinSize, 0);
+    }
+
+    /**
+     * MIME types, without parameters, of the bodies that are compressed.
+     */
+    public Set<String> getCompressibleMimeTypes() {
+        return compressibleMimeTypes;
+    }
+
+    /**
+     * @param compressibleMimeType comma separated MIME types
+     */
+    public void setCompressibleMimeType(final String compressibleMimeType) {
+        this.compressibleMimeTypes = parseMimeTypes(compressibleMimeType);
+    }
+
+    /**
+     * Returns whether a body of this type and length should be compressed.
+     */
+    public boolean isCompressible(final String contentType, final long length) {
+        return length >= compressionMinSize && isCompressible(contentType);
+    }
+
+    /**
+     * Returns whether a body of this type and unknown length should be
+     * compressed.
+     */
+    public boolean isCompressible(final String contentType) {
+        if (!compression || contentType == null) {
+            return false;
+        }
+        final int semicolon = contentType.indexOf(';');
+        return compressibleMimeTypes.contains(semicolon < 0 ? contentType : contentType.substring(0, semicolon).trim());
+    }
+
+    private static Set<String> parseMimeTypes(final String mimeTypes) {
+        return Arrays.stream(mimeTypes.split(","))
+                .map(String::trim)
+                .filter(mimeType -> !mimeType.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Responses compressed while they are written at the same time; further
+     * ones are sent uncompressed.
+     */
+    public int getMaxActiveDeflaters() {
+        return maxActiveDeflaters;
+    }
+
+    public void setMaxActiveDeflaters(final int maxActiveDeflaters) {
+        this.maxActiveDeflaters = maxActiveDeflaters;
+    }
+
+    /**
+     * Returns the deflaters shared by the connector's processors, created on
+     * first use with the settings current at that time.
+     */
+    public synchronized DeflaterPool getDeflaterPool() {
+        if (deflaterPool == null) {
+            deflaterPool = new DeflaterPool(maxActiveDeflaters, Deflater.DEFAULT_COMPRESSION);
+        }
+        return deflaterPool;
+    }
+
+    /**
+     * Bytes of a chunked body collected before they are sent as one chunk.
+     * Smaller values get the first bytes out sooner; larger ones make fewer,
+     * bigger writes.
+     */
+    public int getChunkFlushThreshold() {
+        return chunkFlushThreshold;
+    }
+
+    public void setChunkFlushThreshold(final int chunkFlushThreshold) {
+        this.chunkFlushThreshold = Math.max(chunkFlushThreshold, 1);
+    }
+}
@@ -0,0 +1,680 @@
+package org.apache.coyote.http11;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads HTTP/1.1 request heads straight from bytes. The request line and the
+ * headers are scanned once by a small state machine that only records offsets
+ * into the buffer; Strings are created when a value is asked for. The buffer
+ * belongs to the connection and is reused for every request on it.
+ * <p>
+ * Parsing is resumable: a blocking connection pulls more bytes from its
+ * stream whenever the parser runs dry, while a non-blocking connection
+ * {@link #feed(ByteBuffer) feeds} whatever arrived and checks the returned
+ * {@link State}.
+ * <p>
+ * The limits of {@link Http11Config} are checked as bytes are scanned, so an
+ * oversized request is rejected before the buffer grows to hold it.
+ */
+public class Http11InputBuffer {
+
+    public enum State {
+        REQUEST_LINE, HEADERS, BODY, COMPLETE
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_HEADER_COUNT = 16;
+    private static final int HEADER_FIELDS = 4;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte SP = ' ';
+    private static final byte HT = '\t';
+    private static final byte COLON = ':';
+    private static final byte QUESTION_MARK = '?';
+
+    private static final String[] METHODS = {"GET", "POST", "HEAD", "PUT", "DELETE", "OPTIONS", "PATCH"};
+
+    private static final boolean[] TOKEN = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            TOKEN[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            TOKEN[c] = true;
+            TOKEN[c - 'a' + 'A'] = true;
+        }
+        for (char c : "!#$%&'*+-.^_`|~".toCharArray()) {
+            TOKEN[c] = true;
+        }
+    }
+
+    private enum RequestLineState {
+        START, METHOD, URI_START, URI, PROTOCOL, END
+    }
+
+    private enum HeaderState {
+        START, NAME, VALUE_START, VALUE
+    }
+
+    private final InputStream inputStream;
+    private final int maxHttpHeaderSize;
+    private final int maxHeaderCount;
+    private final int maxUriLength;
+    private final int maxPostSize;
+    private byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+    private int pos;
+    private int end;
+
+    private State state = State.REQUEST_LINE;
+    private int bodyStart;
+    private int contentLength;
+    private int bodyRemaining;
+    private ChunkedDecoder chunkedDecoder;
+    private ChunkedDecoder chunkedScanner;
+    private int chunkedScanPos;
+    private final InputStream bodyInputStream = new BodyInputStream();
+
+    private RequestLineState requestLineState = RequestLineState.START;
+    private int methodStart;
+    private int methodEnd;
+    private int uriStart;
+    private int uriEnd;
+    private int queryStart;
+    private int protocolStart;
+    private int protocolEnd;
+
+    private HeaderState headerState = HeaderState.START;
+    private int[] headers = new int[DEFAULT_HEADER_COUNT * HEADER_FIELDS];
+    private HttpHeader[] headerNames = new HttpHeader[DEFAULT_HEADER_COUNT];
+    private int headerCount;
+
+    public Http11InputBuffer(final InputStream inputStream) {
+        this(inputStream, new Http11Config());
+    }
+
+    public Http11InputBuffer(final InputStream inputStream, final Http11Config config) {
+        this.inputStream = inputStream;
+        this.maxHttpHeaderSize = config.getMaxHttpHeaderSize();
+        this.maxHeaderCount = config.getMaxHeaderCount();
+        this.maxUriLength = config.getMaxUriLength();
+        this.maxPostSize = config.getMaxPostSize();
+    }
+
+    /**
+     * Creates a buffer for a non-blocking connection; bytes only arrive
+     * through {@link #feed(ByteBuffer)}.
+     */
+    public Http11InputBuffer() {
+        this(new Http11Config());
+    }
+
+    public Http11InputBuffer(final Http11Config config) {
+        this(InputStream.nullInputStream(), config);
+    }
+
+    /**
+     * Blocks until the request line and all headers of the next request have
+     * been read. The body, if any, is left to {@link #getBodyInputStream()}.
+     *
+     * @return {@code false} if the connection was closed before a new request started
+     */
+    public boolean parseRequestHead() throws IOException {
+        while (parse() == State.REQUEST_LINE || state == State.HEADERS) {
+            if (!fill()) {
+                if (requestLineState == RequestLineState.START) {
+                    return false;
+                }
+                throw new EOFException("Connection closed in the middle of the request head.");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends every remaining byte of {@code input} and parses as far as the
+     * buffered bytes allow.
+     */
+    public State feed(final ByteBuffer input) {
+        final int length = input.remaining();
+        ensureCapacity(length);
+        input.get(buf, end, length);
+        end += length;
+        return parse();
+    }
+
+    /**
+     * Parses the buffered bytes as far as possible. Once the headers are done
+     * the parser waits in {@link State#BODY} until the whole body is buffered;
+     * the body itself is not consumed.
+     */
+    public State parse() {
+        if (state == State.REQUEST_LINE && parseRequestLine()) {
+            state = State.HEADERS;
+        }
+        if (state == State.HEADERS && parseHeaders()) {
+            checkHeadSize();
+            startBody();
+            state = State.BODY;
+        }
+        if (state == State.REQUEST_LINE || state == State.HEADERS) {
+            checkHeadSize();
+        }
+        if (state == State.BODY && isBodyBuffered()) {
+            state = State.COMPLETE;
+        }
+        return state;
+    }
+
+    private void checkHeadSize() {
+        // the head always starts at the front of the buffer, see nextRequest().
+        if (pos > maxHttpHeaderSize) {
+            throw new HttpParseException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                    "Request head exceeds " + maxHttpHeaderSize + " bytes.");
+        }
+    }
+
+    private void startBody() {
+        bodyStart = pos;
+        if (isChunked()) {
+            contentLength = -1;
+            chunkedDecoder = new ChunkedDecoder(maxPostSize);
+            chunkedScanner = new ChunkedDecoder(maxPostSize);
+            chunkedScanPos = pos;
+            return;
+        }
+        contentLength = parseContentLength();
+        bodyRemaining = contentLength;
+        chunkedDecoder = null;
+    }
+
+    private boolean isChunked() {
+        final String transferEncoding = getHeader(HttpHeader.TRANSFER_ENCODING);
+        if (transferEncoding == null) {
+            return false;
+        }
+        if (!"chunked".equalsIgnoreCase(transferEncoding)) {
+            throw new HttpParseException("Unsupported Transfer-Encoding: " + transferEncoding);
+        }
+        return true;
+    }
+
+    private boolean isBodyBuffered() {
+        if (chunkedDecoder == null) {
+            return end - bodyStart >= contentLength;
+        }
+        while (chunkedScanPos < end && !chunkedScanner.isDone()) {
+            chunkedScanPos = chunkedScanner.skipFraming(buf, chunkedScanPos, end);
+            if (chunkedScanner.isData()) {
+                final int length = Math.min(chunkedScanner.getDataRemaining(), end - chunkedScanPos);
+                chunkedScanner.consumeData(length);
+                chunkedScanPos += length;
+            }
+        }
+        return chunkedScanner.isDone();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the declared body length, or -1 for a chunked body.
+     */
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public boolean hasBody() {
+        return contentLength != 0;
+    }
+
+    private int parseContentLength() {
+        String value = null;
+        // RFC 9112 6.3: repeated values are fine if identical; differing ones
+        // would let another hop frame the body differently.
+        for (String header : getHeaders(HttpHeader.CONTENT_LENGTH)) {
+            for (String element : header.split(",")) {
+                final String candidate = element.trim();
+                if (value == null) {
+                    value = candidate;
+                } else if (!value.equals(candidate)) {
+                    throw new HttpParseException("Conflicting Content-Length values: " + value + ", " + candidate);
+                }
+            }
+        }
+        if (value == null) {
+            return 0;
+        }
+        final long length;
+        try {
+            length = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new HttpParseException("Invalid Content-Length: " + value);
+        }
+        if (length < 0) {
+            throw new HttpParseException("Invalid Content-Length: " + value);
+        }
+        if (length > Integer.MAX_VALUE || (maxPostSize >= 0 && length > maxPostSize)) {
+            throw new HttpParseException(HttpStatus.CONTENT_TOO_LARGE,
+                    "Content-Length " + length + " exceeds " + maxPostSize + " bytes.");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Consumes buffered bytes of the request line.
+     *
+     * @return {@code true} once the whole request line has been parsed,
+     *         {@code false} if more bytes are needed
+     */
+    private boolean parseRequestLine() {
+        while (pos < end) {
+            final byte b = buf[pos];
+            switch (requestLineState) {
+                case START -> {
+                    // RFC 9112 allows empty lines before the request line.
+                    if (b != CR && b != LF) {
+                        methodStart = pos;
+                        requestLineState = RequestLineState.METHOD;
+                        continue;
+                    }
+                }
+                case METHOD -> {
+                    if (b == SP) {
+                        methodEnd = pos;
+                        requestLineState = RequestLineState.URI_START;
+                    } else if (!isToken(b)) {
+                        throw new HttpParseException("Invalid character in the request method.");
+                    }
+                }
+                case URI_START -> {
+                    if (b != SP) {
+                        uriStart = pos;
+                        queryStart = -1;
+                        requestLineState = RequestLineState.URI;
+                        continue;
+                    }
+                }
+                case URI -> {
+                    if (b == SP) {
+                        uriEnd = pos;
+                        protocolStart = pos + 1;
+                        requestLineState = RequestLineState.PROTOCOL;
+                    } else if (pos - uriStart >= maxUriLength) {
+                        throw new HttpParseException(HttpStatus.URI_TOO_LONG,
+                                "Request target exceeds " + maxUriLength + " bytes.");
+                    } else if (b == QUESTION_MARK && queryStart == -1) {
+                        queryStart = pos + 1;
+                    } else if (b == CR || b == LF) {
+                        throw new HttpParseException("Missing protocol in the request line.");
+                    }
+                }
+                case PROTOCOL -> {
+                    if (b == SP || b == CR || b == LF) {
+                        protocolEnd = pos;
+                        requestLineState = RequestLineState.END;
+                        continue;
+                    }
+                }
+                case END -> {
+                    if (b == LF) {
+                        pos++;
+                        return true;
+                    }
+                    if (b != SP && b != HT && b != CR) {
+                        throw new HttpParseException("Invalid character after the request protocol.");
+                    }
+                }
+            }
+            pos++;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes buffered header lines up to and including the empty line that
+     * ends the request head.
+     *
+     * @return {@code true} once the header block is complete,
+     *         {@code false} if more bytes are needed
+     */
+    private boolean parseHeaders() {
+        while (pos < end) {
+            final byte b = buf[pos];
+            switch (headerState) {
+                case START -> {
+                    if (b == LF) {
+                        pos++;
+                        return true;
+                    }
+                    if (b != CR) {
+                        addHeader(pos);
+                        headerState = HeaderState.NAME;
+                        continue;
+                    }
+                }
+                case NAME -> {
+                    if (b == COLON) {
+                        setHeaderField(1, pos);
+                        headerNames[headerCount - 1] = HttpHeader.lookup(buf, headers[(headerCount - 1) * HEADER_FIELDS], pos);
+                        headerState = HeaderState.VALUE_START;
+                    } else if (!isToken(b)) {
+                        throw new HttpParseException("Invalid character in a header name.");
+                    }
+                }
+                case VALUE_START -> {
+                    if (b != SP && b != HT) {
+                        setHeaderField(2, pos);
+                        setHeaderField(3, pos);
+                        headerState = HeaderState.VALUE;
+                        continue;
+                    }
+                }
+                case VALUE -> {
+                    if (b == LF) {
+                        headerState = HeaderState.START;
+                    } else if (b != SP && b != HT && b != CR) {
+                        setHeaderField(3, pos + 1);
+                    }
+                }
+            }
+            pos++;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a stream over the body of the current request. It yields exactly
+     * Content-Length bytes, or the decoded data of a chunked body, and never
+     * holds more than the connection buffer in memory.
+     */
+    public InputStream getBodyInputStream() {
+        return bodyInputStream;
+    }
+
+    private int readBody(final byte[] b, final int off, final int len) throws IOException {
+        if (chunkedDecoder != null) {
+            return readChunked(b, off, len);
+        }
+        return readIdentity(b, off, len);
+    }
+
+    private int readIdentity(final byte[] b, final int off, final int len) throws IOException {
+        if (bodyRemaining == 0) {
+            return -1;
+        }
+        final int length = Math.min(len, bodyRemaining);
+        int n;
+        if (pos < end) {
+            n = Math.min(length, end - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+        } else {
+            // nothing buffered, so read straight into the caller's array.
+            n = inputStream.read(b, off, length);
+            if (n < 0) {
+                throw new EOFException("Connection closed in the middle of the request body.");
+            }
+        }
+        bodyRemaining -= n;
+        return n;
+    }
+
+    private int readChunked(final byte[] b, final int off, final int len) throws IOException {
+        while (!chunkedDecoder.isDone()) {
+            if (pos == end && !fill()) {
+                throw new EOFException("Connection closed in the middle of the chunked request body.");
+            }
+            pos = chunkedDecoder.skipFraming(buf, pos, end);
+            if (chunkedDecoder.isData() && pos < end) {
+                final int n = Math.min(Math.min(len, chunkedDecoder.getDataRemaining()), end - pos);
+                System.arraycopy(buf, pos, b, off, n);
+                pos += n;
+                chunkedDecoder.consumeData(n);
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the next request can be read without blocking, i.e. the
+     * client has pipelined it behind the current one.
+     */
+    public boolean hasBufferedInput() throws IOException {
+        return pos < end || inputStream.available() > 0;
+    }
+
+    /**
+     * Releases the current request and moves any bytes of the next request to
+     * the start of the buffer. An unread body of the current request is skipped.
+     */
+    public void nextRequest() throws IOException {
+        skipBody();
+        if (pos < end) {
+            System.arraycopy(buf, pos, buf, 0, end - pos);
+        }
+        end -= pos;
+        pos = 0;
+        state = State.REQUEST_LINE;
+        requestLineState = RequestLineState.START;
+        headerState = HeaderState.START;
+        headerCount = 0;
+        contentLength = 0;
+        chunkedDecoder = null;
+    }
+
+    private void skipBody() throws IOException {
+        if (chunkedDecoder != null) {
+            final byte[] discard = new byte[DEFAULT_BUFFER_SIZE];
+            while (readChunked(discard, 0, discard.length) >= 0) {
+                // drain the rest of the chunked body
+            }
+            return;
+        }
+        final int buffered = Math.min(end - pos, bodyRemaining);
+        pos += buffered;
+        if (bodyRemaining > buffered) {
+            inputStream.skipNBytes(bodyRemaining - buffered);
+        }
+        bodyRemaining = 0;
+    }
+
+    private boolean fill() throws IOException {
+        if (pos == end && pos > bodyStart && (state == State.BODY || state == State.COMPLETE)) {
+            // body bytes already handed out are not needed again, so reuse that space.
+            pos = bodyStart;
+            end = bodyStart;
+        }
+        ensureCapacity(1);
+        final int n = inputStream.read(buf, end, buf.length - end);
+        if (n <= 0) {
+            return false;
+        }
+        end += n;
+        return true;
+    }
+
+    private void ensureCapacity(final int length) {
+        if (end + length > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, end + length));
+        }
+    }
+
+    private void addHeader(final int nameStart) {
+        if (maxHeaderCount >= 0 && headerCount >= maxHeaderCount) {
+            throw new HttpParseException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                    "Request has more than " + maxHeaderCount + " headers.");
+        }
+        if (headerCount == headerNames.length) {
+            headers = Arrays.copyOf(headers, headers.length * 2);
+            headerNames = Arrays.copyOf(headerNames, headerNames.length * 2);
+        }
+        headers[headerCount * HEADER_FIELDS] = nameStart;
+        headerCount++;
+    }
+
+    private void setHeaderField(final int field, final int value) {
+        headers[(headerCount - 1) * HEADER_FIELDS + field] = value;
+    }
+
+    /**
+     * Returns the request method; common methods come back as constants
+     * without allocating.
+     */
+    public String getMethod() {
+        for (String method : METHODS) {
+            if (equals(methodStart, methodEnd, method)) {
+                return method;
+            }
+        }
+        return string(methodStart, methodEnd);
+    }
+
+    public String getRequestUri() {
+        if (queryStart == -1) {
+            return string(uriStart, uriEnd);
+        }
+        return string(uriStart, queryStart - 1);
+    }
+
+    public String getQueryString() {
+        if (queryStart == -1) {
+            return null;
+        }
+        return string(queryStart, uriEnd);
+    }
+
+    public String getProtocol() {
+        return string(protocolStart, protocolEnd);
+    }
+
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    public String getHeaderName(final int index) {
+        if (headerNames[index] != null) {
+            return headerNames[index].getHeaderName();
+        }
+        final int offset = index * HEADER_FIELDS;
+        return string(headers[offset], headers[offset + 1]);
+    }
+
+    public String getHeaderValue(final int index) {
+        final int offset = index * HEADER_FIELDS;
+        return string(headers[offset + 2], headers[offset + 3]);
+    }
+
+    /**
+     * Returns the value of the first header with the given name, or {@code null}.
+     */
+    public String getHeader(final HttpHeader name) {
+        for (int i = 0; i < headerCount; i++) {
+            if (headerNames[i] == name) {
+                return getHeaderValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the values of every header with the given name, in request order.
+     */
+    public List<String> getHeaders(final HttpHeader name) {
+        final List<String> values = new ArrayList<>(1);
+        for (int i = 0; i < headerCount; i++) {
+            if (headerNames[i] == name) {
+                values.add(getHeaderValue(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the value of the first header with the given name, compared
+     * case-insensitively against the raw bytes, or {@code null}.
+     */
+    public String getHeader(final String name) {
+        final HttpHeader knownName = HttpHeader.of(name);
+        if (knownName != null) {
+            return getHeader(knownName);
+        }
+        for (int i = 0; i < headerCount; i++) {
+            final int offset = i * HEADER_FIELDS;
+            if (headerNames[i] == null && equalsIgnoreCase(headers[offset], headers[offset + 1], name)) {
+                return getHeaderValue(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean equals(final int start, final int end, final String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buf[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equalsIgnoreCase(final int start, final int end, final String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (toLowerCase(buf[start + i]) != toLowerCase((byte) name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class BodyInputStream extends InputStream {
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            if (readBody(single, 0, 1) < 0) {
+                return -1;
+            }
+            return single[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            return readBody(b, off, len);
+        }
+    }
+
+    private static byte toLowerCase(final byte b) {
+        if (b >= 'A' && b <= 'Z') {
+            return (byte) (b + ('a' - 'A'));
+        }
+        return b;
+    }
+
+    private static boolean isToken(final byte b) {
+        return b >= 0 && TOKEN[b];
+    }
+
+    private String string(final int start, final int end) {
+        return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -3,34 +3,76 @@ package org.apache.coyote.http11;
 import com.techcourse.db.InMemoryUserRepository;
 import com.techcourse.exception.UncheckedServletException;
 import com.techcourse.model.User;
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import org.apache.catalina.webresources.CachedResource;
+import org.apache.catalina.webresources.ResourceFingerprints;
+import org.apache.catalina.webresources.StaticResourceCache;
+import org.apache.coyote.ChannelProcessor;
 import org.apache.coyote.Processor;
+import org.apache.coyote.http11.Http11InputBuffer.State;
+import org.apache.tomcat.util.http.AcceptEncoding;
+import org.apache.tomcat.util.http.FastHttpDateFormat;
+import org.apache.tomcat.util.net.NioChannels;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class Http11Processor implements Runnable, Processor {
+public class Http11Processor implements Runnable, Processor, ChannelProcessor {
 
     private static final Logger log = LoggerFactory.getLogger(Http11Processor.class);
-    private static final SessionManager SESSION_MANAGER = new SessionManager();
+    // for processors built without a connector; not started, so its sessions expire only when looked up.
+    private static final SessionManager DEFAULT_SESSION_MANAGER = new SessionManager();
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+    private static final String MIME_BOUNDARY = "JAVA_HTTP_MIME_BOUNDARY";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final byte[] HELLO_WORLD = "Hello world!".getBytes(StandardCharsets.ISO_8859_1);
 
     private final Socket connection;
+    private final Http11Config config;
+    private final StaticResourceCache resourceCache;
+    private final SessionManager sessionManager;
+    private final HttpResponse response = new HttpResponse();
+    private final ResponseWriter responseWriter;
+    private SocketChannel channel;
+    private Http11InputBuffer channelInputBuffer;
+    private ChannelOutputBuffer channelOutputBuffer;
+    private int handledRequests;
+    private boolean keepAlive;
 
     public Http11Processor(final Socket connection) {
+        this(connection, new Http11Config());
+    }
+
+    public Http11Processor(final Socket connection, final Http11Config config) {
+        this(connection, config, new StaticResourceCache());
+    }
+
+    public Http11Processor(final Socket connection, final Http11Config config, final StaticResourceCache resourceCache) {
+        this(connection, config, resourceCache, DEFAULT_SESSION_MANAGER);
+    }
+
+    public Http11Processor(final Socket connection, final Http11Config config, final StaticResourceCache resourceCache,
+                           final SessionManager sessionManager) {
         this.connection = connection;
+        this.config = config;
+        this.resourceCache = resourceCache;
+        this.sessionManager = sessionManager;
+        this.responseWriter = new ResponseWriter(config);
     }
 
     @Override
@@ -42,206 +84,474 @@ public class Http11Processor implements Runnable, Processor {
     @Override
     public void process(final Socket connection) {
         try (final var inputStream = connection.getInputStream();
-             final var outputStream = connection.getOutputStream();
-             final var bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
+             final var outputStream = connection.getOutputStream()) {
+            connection.setSoTimeout(config.getKeepAliveTimeout());
+            // a blocking channel behind the socket lets files go out with sendfile.
+            channel = connection.getChannel();
+            service(inputStream, outputStream);
+        } catch (SocketTimeoutException e) {
+            log.debug("Keep-alive timeout, closing connection.");
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Feeds the bytes read from the channel to this connection's parser,
+     * answers every request completed by them in arrival order and sends all
+     * of their responses with a single write; only files sent with sendfile
+     * flush what is pending ahead of them.
+     */
+    @Override
+    public SocketState process(final SocketChannel channel, final ByteBuffer input) throws IOException {
+        if (channelInputBuffer == null) {
+            this.channel = channel;
+            channelInputBuffer = new Http11InputBuffer(config);
+            channelOutputBuffer = new ChannelOutputBuffer(channel);
+        }
+        keepAlive = true;
+        try {
+            State state = channelInputBuffer.feed(input);
+            while (state == State.COMPLETE && keepAlive) {
+                service(channelInputBuffer, channelOutputBuffer);
+                channelInputBuffer.nextRequest();
+                state = channelInputBuffer.parse();
+            }
+        } catch (HttpParseException e) {
+            response.recycle();
+            rejectRequest(e);
+            writeResponse(channelOutputBuffer);
+        }
+        channelOutputBuffer.flush();
+        if (!keepAlive) {
+            return SocketState.CLOSED;
+        }
+        return SocketState.OPEN;
+    }
 
-            Map<String, String> httpRequest = readHttpRequest(bufferedReader);
-            if (httpRequest.isEmpty()) {
+    /**
+     * Serves requests until the connection should be closed. Responses to
+     * pipelined requests that are already buffered stay in the output buffer
+     * and go out together once the input runs dry.
+     */
+    private void service(final InputStream inputStream, final OutputStream outputStream) throws IOException {
+        final var inputBuffer = new Http11InputBuffer(inputStream, config);
+        final var bufferedOutputStream = new BufferedOutputStream(outputStream, OUTPUT_BUFFER_SIZE);
+        do {
+            service(inputBuffer, bufferedOutputStream);
+            if (!keepAlive || !inputBuffer.hasBufferedInput()) {
+                bufferedOutputStream.flush();
+            }
+            inputBuffer.nextRequest();
+        } while (keepAlive);
+    }
+
+    private void service(final Http11InputBuffer inputBuffer, final OutputStream outputStream) throws IOException {
+        keepAlive = false;
+        response.recycle();
+        try {
+            if (!inputBuffer.parseRequestHead()) {
                 return;
             }
+        } catch (HttpParseException e) {
+            rejectRequest(e);
+            writeResponse(outputStream);
+            return;
+        }
 
-            String uri = httpRequest.get("Uri");
-            String method = httpRequest.get("Method");
-            List<Cookie> cookies = extractCookies(httpRequest);
-            Session session = getSession(cookies);
+        final var request = new HttpRequest(inputBuffer);
+        handledRequests++;
+        keepAlive = isKeepAlive(request);
+        try {
+            handle(request, response);
+            if (response.getBodyWriter() != null) {
+                prepareStreamedBody(request, response);
+            }
+        } catch (HttpParseException e) {
+            response.recycle();
+            rejectRequest(e);
+        } catch (UncheckedServletException | URISyntaxException e) {
+            keepAlive = false;
+            log.error(e.getMessage(), e);
+            return;
+        }
+        writeResponse(outputStream);
+    }
 
-            if("GET".equals(method)){
-                if("/login".equals(uri) && session != null){
-                    responseFound("/index.html", List.of(), outputStream);
-                    return;
-                }
+    /**
+     * HTTP/1.0 has no chunked coding, so a streamed body is collected for it
+     * and sent with its length; HTTP/1.1 clients may get it compressed.
+     */
+    private void prepareStreamedBody(HttpRequest request, HttpResponse response) throws IOException {
+        if (!"HTTP/1.1".equals(request.getProtocol())) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            response.getBodyWriter().writeTo(body);
+            response.setBody(body.toByteArray());
+            return;
+        }
+        if (config.isCompressible(response.getContentType())) {
+            response.addHeader(HttpHeader.VARY, "Accept-Encoding");
+            response.setGzip(AcceptEncoding.isAccepted(request.getHeaders(HttpHeader.ACCEPT_ENCODING), "gzip"));
+        }
+    }
 
-                Path resourcePath = findResourcePath(uri, outputStream);
-                if (resourcePath == null) {
-                    return;
-                }
+    private void rejectRequest(HttpParseException e) {
+        log.debug("Rejected request ({}): {}", e.getStatus().getCode(), e.getMessage());
+        keepAlive = false;
+        response.setStatus(e.getStatus());
+    }
+
+    private void writeResponse(OutputStream outputStream) throws IOException {
+        responseWriter.write(response, keepAlive, outputStream, channel);
+    }
 
-                responseOk(resourcePath, outputStream);
+    private boolean isKeepAlive(HttpRequest request) {
+        int maxKeepAliveRequests = config.getMaxKeepAliveRequests();
+        if (maxKeepAliveRequests > 0 && handledRequests >= maxKeepAliveRequests) {
+            return false;
+        }
+
+        String connectionHeader = request.getHeader(HttpHeader.CONNECTION);
+        if ("HTTP/1.0".equals(request.getProtocol())) {
+            return "keep-alive".equalsIgnoreCase(connectionHeader);
+        }
+        return !"close".equalsIgnoreCase(connectionHeader);
+    }
+
+    private void handle(HttpRequest request, HttpResponse response) throws IOException, URISyntaxException {
+        String uri = request.getRequestUri();
+        String method = request.getMethod();
+        Session session = getSession(request);
+
+        if("GET".equals(method)){
+            if("/login".equals(uri) && session != null){
+                responseFound("/index.html", request, response);
                 return;
             }
 
-            if("POST".equals(method)){
-                String requestBody = httpRequest.get("Body");
-                if("/login".equals(uri)){
-                    login(requestBody, outputStream);
-                    return;
-                }
-                if("/register".equals(uri)){
-                    register(requestBody, outputStream);
-                    return;
-                }
+            // a fingerprinted URL names the same file as its plain path, but
+            // only one with the current hash may be cached for good.
+            boolean immutable = false;
+            ResourceFingerprints fingerprints = resourceCache.getFingerprints();
+            if(fingerprints != null && uri.startsWith(ResourceFingerprints.PREFIX)){
+                immutable = fingerprints.isCurrent(uri);
+                uri = ResourceFingerprints.stripFingerprint(uri);
             }
 
+            CachedResource resource = findResource(uri, response);
+            if (resource == null) {
+                return;
+            }
 
-        } catch (IOException | UncheckedServletException | URISyntaxException e) {
-            log.error(e.getMessage(), e);
+            responseResource(resource, immutable, request, response);
+            return;
         }
-    }
 
-    private static Session getSession(List<Cookie> cookies) throws IOException {
-        List<String> sessionIdTexts = cookies.stream()
-                .filter(cookie -> "JSESSIONID".equals(cookie.getName()))
-                .map(Cookie::getValue)
-                .toList();
-        Session session = null;
-        if(!sessionIdTexts.isEmpty()){
-            session = SESSION_MANAGER.findSession(sessionIdTexts.getFirst());
+        if("POST".equals(method)){
+            if("/login".equals(uri)){
+                login(request, response);
+                return;
+            }
+            if("/register".equals(uri)){
+                register(request, response);
+                return;
+            }
         }
 
-        return session;
+        response.setStatus(HttpStatus.NOT_FOUND);
     }
 
-    private List<Cookie> extractCookies(Map<String, String> httpRequest) {
-        String cookie = httpRequest.get("Cookie");
-        if(cookie == null){
-            return List.of();
+    private Session getSession(HttpRequest request) {
+        Cookie sessionCookie = request.getCookie("JSESSIONID");
+        if(sessionCookie == null){
+            return null;
         }
 
-        return Arrays.stream(cookie.split("; "))
-                .map(c -> c.split("="))
-                .map(c -> new Cookie(c[0], c[1]))
-                .toList();
+        return sessionManager.findSession(sessionCookie.getValue());
     }
 
-    private void register(String requestBody, OutputStream outputStream) throws IOException, URISyntaxException {
-        String[] body = requestBody.split("&");
-        String account = body[0].split("=")[1];
-        String email = body[1].split("=")[1];
-        String password = body[2].split("=")[1];
+    private void register(HttpRequest request, HttpResponse response) throws IOException, URISyntaxException {
+        Map<String, String> form = request.getFormParameters();
+        String account = form.get("account");
+        String email = form.get("email");
+        String password = form.get("password");
+        if(account == null || email == null || password == null){
+            response.setStatus(HttpStatus.BAD_REQUEST);
+            return;
+        }
 
         if(InMemoryUserRepository.findByAccount(account).isPresent()){
-            outputStream.write("HTTP/1.1 409 CONFLICT \r\n\r\n".getBytes());
-            outputStream.flush();
+            response.setStatus(HttpStatus.CONFLICT);
             return;
         }
         User user = new User(account, password, email);
         InMemoryUserRepository.save(user);
 
-        responseFound("/index.html", List.of(), outputStream);
+        responseFound("/index.html", request, response);
     }
 
-    private void responseOk(Path resourcePath, OutputStream outputStream) throws IOException {
-        String responseBody = readResponseBody(resourcePath);
-        String contentType = Files.probeContentType(resourcePath);
-        String httpResponse = createHttpResponse(200, "OK" ,List.of(), contentType, responseBody);
-        outputStream.write(httpResponse.getBytes());
-        outputStream.flush();
+    private void responseResource(CachedResource resource, boolean immutable, HttpRequest request,
+                                  HttpResponse response) throws IOException {
+        // ranges always address the identity variant.
+        String range = request.getHeader(HttpHeader.RANGE);
+        boolean gzip = range == null && isGzipAccepted(request, resource);
+        String eTag = getETag(resource, gzip);
+        if (isNotModified(request, resource, eTag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED);
+            response.addHeader(HttpHeader.ETAG, eTag);
+            addCacheHeaders(resource, immutable, response);
+            return;
+        }
+
+        addCacheHeaders(resource, immutable, response);
+        response.addHeader(HttpHeader.ACCEPT_RANGES, "bytes");
+        response.addHeader(HttpHeader.ETAG, eTag);
+        response.addHeader(HttpHeader.LAST_MODIFIED, resource.getLastModifiedHttp());
+        if (gzip) {
+            responseGzip(resource, response);
+            return;
+        }
+        if (range != null && isIfRangeMatched(request, resource)) {
+            List<ByteRange> ranges = ByteRange.parse(range, resource.getContentLength());
+            if (ranges != null) {
+                responsePartial(resource, ranges, response);
+                return;
+            }
+        }
+        responseOk(resource, response);
     }
 
-    private Map<String, String> readHttpRequest(BufferedReader bufferedReader) throws IOException {
-        Map<String, String> httpRequest = new HashMap<>();
+    private boolean isCompressible(CachedResource resource) {
+        return resource.getGzipContent() != null
+                || config.isCompressible(resource.getContentType(), resource.getContentLength());
+    }
 
-        String firstLine = bufferedReader.readLine();
-        if(firstLine == null) return httpRequest;
+    /**
+     * A resource without a compressed variant can only be compressed while it
+     * is written, which needs the chunked coding of HTTP/1.1.
+     */
+    private boolean isGzipAccepted(HttpRequest request, CachedResource resource) {
+        if (resource.getGzipContent() == null
+                && (!"HTTP/1.1".equals(request.getProtocol()) || !isCompressible(resource))) {
+            return false;
+        }
+        return AcceptEncoding.isAccepted(request.getHeaders(HttpHeader.ACCEPT_ENCODING), "gzip");
+    }
 
-        String[] requestLine = firstLine.split(" ");
+    /**
+     * Bytes compressed while they are written may differ from one response to
+     * the next, so they only get a weak tag.
+     */
+    private static String getETag(CachedResource resource, boolean gzip) throws IOException {
+        if (!gzip) {
+            return resource.getETag();
+        }
+        if (resource.getGzipContent() != null) {
+            return resource.getGzipETag();
+        }
+        return "W/" + resource.getETag();
+    }
 
-        if(requestLine.length < 3) return httpRequest;
-        httpRequest.put("Method", requestLine[0]);
-        httpRequest.put("Uri", requestLine[1]);
-        httpRequest.put("Version", requestLine[2]);
+    private void addCacheHeaders(CachedResource resource, boolean immutable, HttpResponse response) {
+        if (immutable) {
+            response.addHeader(HttpHeader.CACHE_CONTROL, IMMUTABLE);
+        }
+        if (isCompressible(resource)) {
+            response.addHeader(HttpHeader.VARY, "Accept-Encoding");
+        }
+    }
 
-        int queryParameterIndex = requestLine[1].indexOf("?");
-        if(queryParameterIndex != -1){
-            httpRequest.put("Uri", requestLine[1].substring(0, queryParameterIndex));
-            httpRequest.put("QueryParameters", requestLine[1].substring(queryParameterIndex + 1, requestLine[1].length()));
+    /**
+     * Evaluates If-None-Match, or If-Modified-Since when there is none, as
+     * RFC 9110 orders them.
+     */
+    private boolean isNotModified(HttpRequest request, CachedResource resource, String eTag) {
+        List<String> ifNoneMatch = request.getHeaders(HttpHeader.IF_NONE_MATCH);
+        if (!ifNoneMatch.isEmpty()) {
+            // If-None-Match uses the weak comparison: tags match when their opaque parts do.
+            String opaqueTag = opaqueTag(eTag);
+            for (String header : ifNoneMatch) {
+                for (String candidate : header.split(",")) {
+                    candidate = candidate.trim();
+                    if ("*".equals(candidate) || opaqueTag.equals(opaqueTag(candidate))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         }
 
+        String ifModifiedSince = request.getHeader(HttpHeader.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        long date = FastHttpDateFormat.parseDate(ifModifiedSince);
+        return date != -1 && resource.getLastModified() / 1000 * 1000 <= date;
+    }
 
-        String line = bufferedReader.readLine();
-        while (!"".equals(line)){
-            String[] header = line.split(": ");
-            if(header.length != 2){
-                return Map.of();
-            }
+    private static String opaqueTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
 
-            httpRequest.put(header[0], header[1]);
-            line = bufferedReader.readLine();
+    private boolean isIfRangeMatched(HttpRequest request, CachedResource resource) throws IOException {
+        String ifRange = request.getHeader(HttpHeader.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(resource.getETag());
+        }
+        if (ifRange.startsWith("W/")) {
+            // If-Range needs a strong match, which a weak tag never is.
+            return false;
         }
+        long date = FastHttpDateFormat.parseDate(ifRange);
+        return date != -1 && date == resource.getLastModified() / 1000 * 1000;
+    }
 
-        if(httpRequest.containsKey("Content-Length")){
-            int contentLength = Integer.parseInt(httpRequest.get("Content-Length"));
-            char[] body = new char[contentLength];
-            bufferedReader.read(body);
+    private void responsePartial(CachedResource resource, List<ByteRange> ranges, HttpResponse response)
+            throws IOException {
+        long length = resource.getContentLength();
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.RANGE_NOT_SATISFIABLE);
+            response.addHeader(HttpHeader.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
 
-            httpRequest.put("Body", String.valueOf(body));
+        response.setStatus(HttpStatus.PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(resource.getContentType());
+            response.addHeader(HttpHeader.CONTENT_RANGE, range.toContentRange(length));
+            if (resource.getContent() == null && resource.getDirectContent() == null) {
+                response.setBodyFile(resource.getPath(), range.getStart(), range.getLength());
+                return;
+            }
+            response.setBodyBuffers(resource.slice(range.getStart(), range.getLength()));
+            return;
         }
 
-        return httpRequest;
+        response.setContentType("multipart/byteranges; boundary=" + MIME_BOUNDARY);
+        ByteBuffer[] parts = new ByteBuffer[ranges.size() * 2 + 1];
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            String partHeader = "\r\n--" + MIME_BOUNDARY + "\r\n" +
+                    "Content-Type: " + resource.getContentType() + "\r\n" +
+                    "Content-Range: " + range.toContentRange(length) + "\r\n" +
+                    "\r\n";
+            parts[i * 2] = ByteBuffer.wrap(partHeader.getBytes(StandardCharsets.ISO_8859_1));
+            parts[i * 2 + 1] = resource.slice(range.getStart(), range.getLength());
+        }
+        parts[parts.length - 1] = ByteBuffer.wrap(("\r\n--" + MIME_BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        response.setBodyBuffers(parts);
     }
 
-    private void login(String requestBody, OutputStream outputStream)
-            throws IOException, URISyntaxException {
-        if(requestBody == null){
+    private void responseGzip(CachedResource resource, HttpResponse response) {
+        if (resource.getGzipContent() != null) {
+            response.addHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+            response.setContentType(resource.getContentType());
+            response.setBody(resource.getGzipContent());
+            return;
+        }
+        responseOk(resource, response);
+        response.setGzip(true);
+    }
+
+    private void responseOk(CachedResource resource, HttpResponse response) {
+        response.setContentType(resource.getContentType());
+        if (resource.getContent() != null) {
+            response.setBody(resource.getContent());
+            return;
+        }
+        if (resource.getDirectContent() != null) {
+            response.setBodyBuffers(resource.getDirectContent());
             return;
         }
+        response.setBodyFile(resource.getPath(), resource.getContentLength());
+    }
 
-        String[] body = requestBody.split("&");
-        String account = body[0].split("=")[1];
-        String password = body[1].split("=")[1];
+    private void login(HttpRequest request, HttpResponse response)
+            throws IOException, URISyntaxException {
+        Map<String, String> form = request.getFormParameters();
+        String account = form.get("account");
+        String password = form.get("password");
+        if(account == null || password == null){
+            responseFound("/401.html", request, response);
+            return;
+        }
 
         Optional<User> optionalUser = InMemoryUserRepository.findByAccount(account);
         if(optionalUser.isEmpty()){
-            responseFound("/401.html", List.of(), outputStream);
+            responseFound("/401.html", request, response);
             return;
         }
 
         User user = optionalUser.get();
         if(!user.checkPassword(password)){
-            responseFound("/401.html", List.of(), outputStream);
+            responseFound("/401.html", request, response);
             return;
         }
 
         String sessionName = "JSESSIONID";
-        Session newSession = SESSION_MANAGER.createSession();
-        SESSION_MANAGER.add(newSession);
+        Session newSession = sessionManager.createSession();
+        try {
+            sessionManager.add(newSession);
+        } catch (TooManyActiveSessionsException e) {
+            log.warn(e.getMessage());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE);
+            return;
+        }
         Cookie cookie = new Cookie(sessionName, newSession.getId());
-        String cookieHeader = "Set-Cookie: " + cookie.getName() + "=" + cookie.getValue();
-        List<String> headers = List.of(cookieHeader);
+        response.addHeader(HttpHeader.SET_COOKIE, cookie.getName() + "=" + cookie.getValue());
+
+        responseFound("/index.html", request, response);
+    }
 
-        responseFound("/index.html", headers, outputStream);
+    private void responseFound(String uri, HttpRequest request, HttpResponse response)
+            throws IOException, URISyntaxException {
+        CachedResource resource = findResource(uri, response);
+        if (resource == null) {
+            return;
+        }
+        response.setStatus(HttpStatus.FOUND);
+        if (isCompressible(resource)) {
+            response.addHeader(HttpHeader.VARY, "Accept-Encoding");
+        }
+        if (isGzipAccepted(request, resource)) {
+            responseGzip(resource, response);
+            return;
+        }
+        responseOk(resource, response);
     }
 
-    private void responseFound(String uri, List<String> headers, OutputStream outputStream) throws IOException, URISyntaxException {
-        Path resourcePath = findResourcePath(uri, outputStream);
-        String contentType = Files.probeContentType(resourcePath);
-        String responseBody = readResponseBody(resourcePath);
-        String httpResponse = createHttpResponse(302, "FOUND", headers, contentType, responseBody);
-        outputStream.write(httpResponse.getBytes());
-        outputStream.flush();
+    private CachedResource findResource(String uri, HttpResponse response) throws IOException, URISyntaxException {
+        CachedResource cached = resourceCache.get(uri);
+        if (cached != null) {
+            return cached;
+        }
+        Path resourcePath = findResourcePath(uri, response);
+        if (resourcePath == null) {
+            return null;
+        }
+        return resourceCache.load(uri, resourcePath);
     }
 
-    private Path findResourcePath(String uri, OutputStream outputStream) throws IOException, URISyntaxException {
+    private Path findResourcePath(String uri, HttpResponse response) throws URISyntaxException {
         URL url = findResourceURL(uri);
         if(url == null){
-            String helloWorldHttpResponse = helloWorldHttpResponse();
-            outputStream.write(helloWorldHttpResponse.getBytes());
-            outputStream.flush();
+            helloWorld(response);
             return null;
         }
 
         Path resourcePath = Path.of(url.toURI());
         Path normalizedResourcePath = resourcePath.normalize();
         if(!normalizedResourcePath.startsWith("/")){
-            outputStream.write("HTTP/1.1 401 UNAUTHORIZED \r\n\r\n".getBytes());
-            outputStream.flush();
+            response.setStatus(HttpStatus.UNAUTHORIZED);
             return null;
         }
 
         if(!Files.isRegularFile(normalizedResourcePath)){
-            String helloWorldHttpResponse = helloWorldHttpResponse();
-            outputStream.write(helloWorldHttpResponse.getBytes());
-            outputStream.flush();
+            helloWorld(response);
             return null;
         }
 
@@ -259,42 +569,35 @@ public class Http11Processor implements Runnable, Processor {
         return url;
     }
 
-    private String helloWorldHttpResponse() {
-        return String.join(
-                "\r\n",
-                "HTTP/1.1 200 OK ",
-                "Content-Type: text/html;charset=utf-8 ",
-                "Content-Length: 12 ",
-                "",
-                "Hello world!"
-        );
-    }
-
-    private String readResponseBody(Path resourcePath) throws IOException {
-        return String.join("\n", Files.readAllLines(resourcePath)) + "\n";
-    }
-
-    private String createHttpResponse(int statusCode, String statusMessage, List<String> headers, String contentType, String responseBody) {
-        if(headers.isEmpty()){
-            return String.join(
-                    "\r\n",
-                    "HTTP/1.1 "+ statusCode + " " + statusMessage,
-                    "Content-Type: "+ contentType +";charset=utf-8 ",
-                    "Content-Length: " + responseBody.getBytes().length + " ",
-                    "",
-                    responseBody
-            );
-        }
-
-        String headerTexts = headers.stream().collect(Collectors.joining("\r\n"));
-        return String.join(
-                "\r\n",
-                "HTTP/1.1 "+ statusCode + " " + statusMessage,
-                "Content-Type: "+ contentType +";charset=utf-8 ",
-                "Content-Length: " + responseBody.getBytes().length + " ",
-                headerTexts,
-                "",
-                responseBody
-        );
+    private void helloWorld(HttpResponse response) {
+        response.setContentType("text/html;charset=utf-8");
+        response.setBody(HELLO_WORLD);
+    }
+
+    /**
+     * Collects the responses of one read and writes them to the channel on
+     * {@link #flush()} without copying the buffer.
+     */
+    private static final class ChannelOutputBuffer extends ByteArrayOutputStream {
+
+        private final SocketChannel channel;
+
+        ChannelOutputBuffer(final SocketChannel channel) {
+            super(OUTPUT_BUFFER_SIZE);
+            this.channel = channel;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            NioChannels.write(channel, ByteBuffer.wrap(buf, 0, count));
+            if (buf.length > OUTPUT_BUFFER_SIZE) {
+                // do not keep a buffer sized for a large response on an idle connection.
+                buf = new byte[OUTPUT_BUFFER_SIZE];
+            }
+            reset();
+        }
     }
 }
@@ -0,0 +1,114 @@
+package org.apache.coyote.http11;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Header names the server looks at. The parser maps matching names onto these
+ * constants while it scans the request, so lookups compare by identity
+ * instead of building and hashing a String per header. Response headers are
+ * written from the same constants, whose names are encoded once.
+ */
+public enum HttpHeader {
+
+    HOST("Host"),
+    CONNECTION("Connection"),
+    CONTENT_LENGTH("Content-Length"),
+    CONTENT_TYPE("Content-Type"),
+    TRANSFER_ENCODING("Transfer-Encoding"),
+    COOKIE("Cookie"),
+    ACCEPT("Accept"),
+    ACCEPT_ENCODING("Accept-Encoding"),
+    USER_AGENT("User-Agent"),
+    REFERER("Referer"),
+    EXPECT("Expect"),
+    IF_NONE_MATCH("If-None-Match"),
+    IF_MODIFIED_SINCE("If-Modified-Since"),
+    RANGE("Range"),
+    IF_RANGE("If-Range"),
+    SET_COOKIE("Set-Cookie"),
+    ACCEPT_RANGES("Accept-Ranges"),
+    CONTENT_RANGE("Content-Range"),
+    ETAG("ETag"),
+    LAST_MODIFIED("Last-Modified"),
+    CACHE_CONTROL("Cache-Control"),
+    CONTENT_ENCODING("Content-Encoding"),
+    VARY("Vary");
+
+    private static final HttpHeader[][] BY_LENGTH;
+
+    static {
+        final List<List<HttpHeader>> byLength = new ArrayList<>();
+        for (HttpHeader header : values()) {
+            final int length = header.lowerCaseName.length;
+            while (byLength.size() <= length) {
+                byLength.add(new ArrayList<>());
+            }
+            byLength.get(length).add(header);
+        }
+        BY_LENGTH = byLength.stream()
+                .map(headers -> headers.toArray(HttpHeader[]::new))
+                .toArray(HttpHeader[][]::new);
+    }
+
+    private final String headerName;
+    private final byte[] lowerCaseName;
+    private final byte[] fieldPrefix;
+
+    HttpHeader(final String headerName) {
+        this.headerName = headerName;
+        this.lowerCaseName = headerName.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.ISO_8859_1);
+        this.fieldPrefix = (headerName + ": ").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    /**
+     * Returns the encoded {@code "Name: "} that starts a header line. The
+     * array is shared and must not be modified.
+     */
+    byte[] getFieldPrefix() {
+        return fieldPrefix;
+    }
+
+    /**
+     * Returns the constant whose name matches {@code buf[start, end)} ignoring
+     * case, or {@code null} for a header the server does not know.
+     */
+    static HttpHeader lookup(final byte[] buf, final int start, final int end) {
+        final int length = end - start;
+        if (length >= BY_LENGTH.length) {
+            return null;
+        }
+        for (HttpHeader header : BY_LENGTH[length]) {
+            if (header.matches(buf, start)) {
+                return header;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the constant for a header name ignoring case, or {@code null}.
+     */
+    public static HttpHeader of(final String name) {
+        return lookup(name.getBytes(StandardCharsets.ISO_8859_1), 0, name.length());
+    }
+
+    private boolean matches(final byte[] buf, final int start) {
+        for (int i = 0; i < lowerCaseName.length; i++) {
+            byte b = buf[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCaseName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package org.apache.coyote.http11;
+
+public class HttpParseException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public HttpParseException(String message) {
+        this(HttpStatus.BAD_REQUEST, message);
+    }
+
+    public HttpParseException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,148 @@
+package org.apache.coyote.http11;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed request. It is a view over the connection's
+ * {@link Http11InputBuffer}, so it is only valid until the next request on the
+ * same connection is read.
+ */
+public class HttpRequest {
+
+    private static final int FORM_READ_SIZE = 512;
+
+    private final Http11InputBuffer inputBuffer;
+    private String requestUri;
+    private List<Cookie> cookies;
+    private Map<String, String> formParameters;
+
+    public HttpRequest(final Http11InputBuffer inputBuffer) {
+        this.inputBuffer = inputBuffer;
+    }
+
+    public String getMethod() {
+        return inputBuffer.getMethod();
+    }
+
+    public String getRequestUri() {
+        if (requestUri == null) {
+            requestUri = inputBuffer.getRequestUri();
+        }
+        return requestUri;
+    }
+
+    public String getQueryString() {
+        return inputBuffer.getQueryString();
+    }
+
+    public String getProtocol() {
+        return inputBuffer.getProtocol();
+    }
+
+    public String getHeader(final HttpHeader name) {
+        return inputBuffer.getHeader(name);
+    }
+
+    public List<String> getHeaders(final HttpHeader name) {
+        return inputBuffer.getHeaders(name);
+    }
+
+    public String getHeader(final String name) {
+        return inputBuffer.getHeader(name);
+    }
+
+    /**
+     * Returns the declared body length, or -1 for a chunked body.
+     */
+    public int getContentLength() {
+        return inputBuffer.getContentLength();
+    }
+
+    public List<Cookie> getCookies() {
+        if (cookies == null) {
+            cookies = parseCookies();
+        }
+        return cookies;
+    }
+
+    public Cookie getCookie(final String name) {
+        for (Cookie cookie : getCookies()) {
+            if (cookie.getName().equals(name)) {
+                return cookie;
+            }
+        }
+        return null;
+    }
+
+    private List<Cookie> parseCookies() {
+        final List<Cookie> parsed = new ArrayList<>();
+        for (String header : getHeaders(HttpHeader.COOKIE)) {
+            for (String pair : header.split(";")) {
+                final int separatorIndex = pair.indexOf('=');
+                if (separatorIndex > 0) {
+                    parsed.add(new Cookie(pair.substring(0, separatorIndex).trim(), pair.substring(separatorIndex + 1).trim()));
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the request body as a stream. It is read straight from the
+     * connection, so it can only be consumed once.
+     */
+    public InputStream getInputStream() {
+        return inputBuffer.getBodyInputStream();
+    }
+
+    /**
+     * Reads an {@code application/x-www-form-urlencoded} body from the stream
+     * one pair at a time and returns the decoded parameters.
+     */
+    public Map<String, String> getFormParameters() throws IOException {
+        if (formParameters != null) {
+            return formParameters;
+        }
+        formParameters = new HashMap<>();
+        if (!inputBuffer.hasBody()) {
+            return formParameters;
+        }
+        final var reader = new InputStreamReader(getInputStream(), StandardCharsets.UTF_8);
+        final var pair = new StringBuilder();
+        final char[] chunk = new char[FORM_READ_SIZE];
+        int read;
+        while ((read = reader.read(chunk)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] == '&') {
+                    addFormParameter(pair);
+                    continue;
+                }
+                pair.append(chunk[i]);
+            }
+        }
+        addFormParameter(pair);
+        return formParameters;
+    }
+
+    private void addFormParameter(final StringBuilder pair) {
+        final int separatorIndex = pair.indexOf("=");
+        if (separatorIndex > 0) {
+            try {
+                final String name = URLDecoder.decode(pair.substring(0, separatorIndex), StandardCharsets.UTF_8);
+                final String value = URLDecoder.decode(pair.substring(separatorIndex + 1), StandardCharsets.UTF_8);
+                formParameters.putIfAbsent(name, value);
+            } catch (IllegalArgumentException e) {
+                throw new HttpParseException("Invalid form parameter: " + e.getMessage());
+            }
+        }
+        pair.setLength(0);
+    }
+}
@@ -0,0 +1,201 @@
+package org.apache.coyote.http11;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The response to one request. Handlers fill it in and the connection's
+ * {@link ResponseWriter} encodes it; it is recycled between requests on the
+ * same connection.
+ */
+public class HttpResponse {
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private HttpStatus status = HttpStatus.OK;
+    private String contentType;
+    private final List<HttpHeader> headerNames = new ArrayList<>();
+    private final List<String> headerValues = new ArrayList<>();
+    private byte[] body = EMPTY_BODY;
+    private ByteBuffer[] bodyBuffers;
+    private Path bodyFile;
+    private long bodyFilePosition;
+    private long bodyFileLength;
+    private BodyWriter bodyWriter;
+    private boolean gzip;
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(final HttpStatus status) {
+        this.status = status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(final String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Adds a header line. Content-Type and Content-Length are written from
+     * the response itself and are not added here.
+     */
+    public void addHeader(final HttpHeader name, final String value) {
+        headerNames.add(name);
+        headerValues.add(value);
+    }
+
+    public int getHeaderCount() {
+        return headerNames.size();
+    }
+
+    public HttpHeader getHeaderName(final int index) {
+        return headerNames.get(index);
+    }
+
+    public String getHeaderValue(final int index) {
+        return headerValues.get(index);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Sets the encoded body. The array is written as is, so it must not be
+     * modified until the response has been sent.
+     */
+    public void setBody(final byte[] body) {
+        this.body = body;
+        this.bodyBuffers = null;
+        this.bodyFile = null;
+        this.bodyWriter = null;
+    }
+
+    /**
+     * Returns the buffers to send as the body, or {@code null} if the body is
+     * an array or a file.
+     */
+    public ByteBuffer[] getBodyBuffers() {
+        return bodyBuffers;
+    }
+
+    /**
+     * Sends the remaining bytes of the buffers, in order, as the body. Their
+     * positions move as they are written, so pass views that belong to this
+     * response.
+     */
+    public void setBodyBuffers(final ByteBuffer... bodyBuffers) {
+        this.bodyBuffers = bodyBuffers;
+        this.body = EMPTY_BODY;
+        this.bodyFile = null;
+        this.bodyWriter = null;
+    }
+
+    /**
+     * Returns the file to send as the body, or {@code null} if the body is
+     * held in memory.
+     */
+    public Path getBodyFile() {
+        return bodyFile;
+    }
+
+    /**
+     * Returns where in the body file the body starts.
+     */
+    public long getBodyFilePosition() {
+        return bodyFilePosition;
+    }
+
+    /**
+     * Sends {@code length} bytes of a file as the body. The file is read while
+     * the response is written, so nothing is loaded here.
+     */
+    public void setBodyFile(final Path bodyFile, final long length) {
+        setBodyFile(bodyFile, 0, length);
+    }
+
+    /**
+     * Sends {@code length} bytes of a file, starting at {@code position}, as
+     * the body.
+     */
+    public void setBodyFile(final Path bodyFile, final long position, final long length) {
+        this.bodyFile = bodyFile;
+        this.bodyFilePosition = position;
+        this.bodyFileLength = length;
+        this.body = EMPTY_BODY;
+        this.bodyBuffers = null;
+        this.bodyWriter = null;
+    }
+
+    /**
+     * Returns what writes the body while it is sent, or {@code null} if the
+     * body is known in advance.
+     */
+    public BodyWriter getBodyWriter() {
+        return bodyWriter;
+    }
+
+    /**
+     * Streams the body instead of holding it: the writer is called once the
+     * head is out and its output is sent with the chunked transfer coding, a
+     * chunk at a time, so memory stays the same however long it is.
+     */
+    public void setBodyWriter(final BodyWriter bodyWriter) {
+        this.bodyWriter = bodyWriter;
+        this.body = EMPTY_BODY;
+        this.bodyBuffers = null;
+        this.bodyFile = null;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Asks for the body to be gzip compressed while it is written, and sent
+     * with the chunked transfer coding since its length is not known in
+     * advance. The writer sends it as it is if no deflater is free.
+     */
+    public void setGzip(final boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Returns the body length, or -1 if the body is streamed.
+     */
+    public long getContentLength() {
+        if (bodyWriter != null) {
+            return -1;
+        }
+        if (bodyFile != null) {
+            return bodyFileLength;
+        }
+        if (bodyBuffers != null) {
+            long length = 0;
+            for (ByteBuffer bodyBuffer : bodyBuffers) {
+                length += bodyBuffer.remaining();
+            }
+            return length;
+        }
+        return body.length;
+    }
+
+    public void recycle() {
+        status = HttpStatus.OK;
+        contentType = null;
+        headerNames.clear();
+        headerValues.clear();
+        body = EMPTY_BODY;
+        bodyBuffers = null;
+        bodyFile = null;
+        bodyWriter = null;
+        gzip = false;
+    }
+}
@@ -0,0 +1,46 @@
+package org.apache.coyote.http11;
+
+import java.nio.charset.StandardCharsets;
+
+public enum HttpStatus {
+
+    OK(200, "OK"),
+    PARTIAL_CONTENT(206, "PARTIAL CONTENT"),
+    FOUND(302, "FOUND"),
+    NOT_MODIFIED(304, "NOT MODIFIED"),
+    BAD_REQUEST(400, "BAD REQUEST"),
+    UNAUTHORIZED(401, "UNAUTHORIZED"),
+    NOT_FOUND(404, "NOT FOUND"),
+    CONFLICT(409, "CONFLICT"),
+    CONTENT_TOO_LARGE(413, "CONTENT TOO LARGE"),
+    URI_TOO_LONG(414, "URI TOO LONG"),
+    RANGE_NOT_SATISFIABLE(416, "RANGE NOT SATISFIABLE"),
+    REQUEST_HEADER_FIELDS_TOO_LARGE(431, "REQUEST HEADER FIELDS TOO LARGE"),
+    SERVICE_UNAVAILABLE(503, "SERVICE UNAVAILABLE");
+
+    private final int code;
+    private final String reasonPhrase;
+    private final byte[] statusLine;
+
+    HttpStatus(final int code, final String reasonPhrase) {
+        this.code = code;
+        this.reasonPhrase = reasonPhrase;
+        this.statusLine = ("HTTP/1.1 " + code + " " + reasonPhrase + " \r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    /**
+     * Returns the encoded status line including its CRLF. The array is shared
+     * and must not be modified.
+     */
+    byte[] getStatusLine() {
+        return statusLine;
+    }
+}
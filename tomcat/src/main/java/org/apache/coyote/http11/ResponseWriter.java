@@ -0,0 +1,266 @@
+package org.apache.coyote.http11;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.apache.coyote.http11.filters.ChunkedOutputStream;
+import org.apache.coyote.http11.filters.DeflaterPool;
+import org.apache.coyote.http11.filters.GzipOutputStream;
+import org.apache.tomcat.util.net.NioChannels;
+
+/**
+ * Encodes an {@link HttpResponse} onto an output stream. The status line and
+ * header names come pre-encoded from {@link HttpStatus} and {@link HttpHeader},
+ * and the head is assembled in a buffer that belongs to the connection and is
+ * reused for every response. A body that fits behind the head is copied there
+ * so the whole response goes out in one write; a larger one is written
+ * straight from the response.
+ * <p>
+ * Bodies of at least {@link Http11Config#getSendfileSize()} bytes bypass the
+ * stream when the connection has a socket channel: files are handed to the
+ * kernel with {@link FileChannel#transferTo} and arrays are written to the
+ * channel directly. Smaller files are copied through the same buffer. Buffer
+ * bodies, such as those of the off-heap resource cache, go out together with
+ * the head in one gathering write.
+ * <p>
+ * A streamed body, and one marked for gzip, is framed with the chunked
+ * transfer coding; a chunk goes out whenever
+ * {@link Http11Config#getChunkFlushThreshold()} bytes have collected. Gzip
+ * uses a deflater borrowed from the connector's {@link DeflaterPool}; when the
+ * pool has none to spare the body is sent as it is.
+ */
+public class ResponseWriter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] FIELD_END = " \r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CONNECTION_CLOSE = "Connection: close \r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] TRANSFER_ENCODING_CHUNKED =
+            "Transfer-Encoding: chunked \r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CONTENT_ENCODING_GZIP = "Content-Encoding: gzip \r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final boolean useSendfile;
+    private final int sendfileSize;
+    private final DeflaterPool deflaterPool;
+    private final int chunkFlushThreshold;
+    private byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+    private int count;
+
+    public ResponseWriter() {
+        this(new Http11Config());
+    }
+
+    public ResponseWriter(final Http11Config config) {
+        this.useSendfile = config.isUseSendfile();
+        this.sendfileSize = config.getSendfileSize();
+        this.deflaterPool = config.getDeflaterPool();
+        this.chunkFlushThreshold = config.getChunkFlushThreshold();
+    }
+
+    public void write(final HttpResponse response, final boolean keepAlive, final OutputStream outputStream)
+            throws IOException {
+        write(response, keepAlive, outputStream, null);
+    }
+
+    /**
+     * @param keepAlive {@code false} to announce that the connection closes after this response
+     * @param channel the channel under {@code outputStream} to send files with, or {@code null}
+     */
+    public void write(final HttpResponse response, final boolean keepAlive, final OutputStream outputStream,
+                      final SocketChannel channel) throws IOException {
+        final Deflater deflater = response.isGzip() ? deflaterPool.borrow() : null;
+        if (deflater != null || response.getBodyWriter() != null) {
+            try {
+                writeHead(response, keepAlive, true, deflater != null);
+                writeChunked(response, deflater, outputStream);
+            } finally {
+                if (deflater != null) {
+                    deflaterPool.release(deflater);
+                }
+            }
+            return;
+        }
+
+        writeHead(response, keepAlive, false, false);
+        if (response.getBodyFile() != null) {
+            writeFile(response, outputStream, channel);
+            return;
+        }
+        if (response.getBodyBuffers() != null) {
+            writeBuffers(response.getBodyBuffers(), outputStream, channel);
+            return;
+        }
+        final byte[] body = response.getBody();
+        if (count + body.length <= buf.length) {
+            System.arraycopy(body, 0, buf, count, body.length);
+            outputStream.write(buf, 0, count + body.length);
+            return;
+        }
+        outputStream.write(buf, 0, count);
+        if (channel != null && body.length >= sendfileSize) {
+            // large bodies skip the stream's buffer and go to the socket as they are.
+            outputStream.flush();
+            NioChannels.write(channel, ByteBuffer.wrap(body));
+            return;
+        }
+        outputStream.write(body);
+    }
+
+    private void writeHead(final HttpResponse response, final boolean keepAlive, final boolean chunked,
+                           final boolean gzip) {
+        count = 0;
+        append(response.getStatus().getStatusLine());
+        if (response.getContentType() != null) {
+            appendHeader(HttpHeader.CONTENT_TYPE, response.getContentType());
+        }
+        if (chunked) {
+            append(TRANSFER_ENCODING_CHUNKED);
+        } else if (response.getStatus() != HttpStatus.NOT_MODIFIED) {
+            // a 304 has no body, and a length of 0 would describe the wrong representation.
+            append(HttpHeader.CONTENT_LENGTH.getFieldPrefix());
+            appendDecimal(response.getContentLength());
+            append(FIELD_END);
+        }
+        if (!keepAlive) {
+            append(CONNECTION_CLOSE);
+        }
+        for (int i = 0; i < response.getHeaderCount(); i++) {
+            appendHeader(response.getHeaderName(i), response.getHeaderValue(i));
+        }
+        if (gzip) {
+            append(CONTENT_ENCODING_GZIP);
+        }
+        append(CRLF);
+    }
+
+    private void writeChunked(final HttpResponse response, final Deflater deflater, final OutputStream outputStream)
+            throws IOException {
+        outputStream.write(buf, 0, count);
+        count = 0;
+        final OutputStream chunked = new ChunkedOutputStream(outputStream, chunkFlushThreshold);
+        final OutputStream body = deflater != null ? new GzipOutputStream(chunked, deflater) : chunked;
+        if (response.getBodyWriter() != null) {
+            response.getBodyWriter().writeTo(body);
+        } else if (response.getBodyFile() != null) {
+            try (final var file = FileChannel.open(response.getBodyFile())) {
+                file.position(response.getBodyFilePosition());
+                copy(file, response.getContentLength(), body);
+            }
+        } else if (response.getBodyBuffers() != null) {
+            for (ByteBuffer buffer : response.getBodyBuffers()) {
+                copy(buffer, body);
+            }
+        } else {
+            body.write(response.getBody());
+        }
+        // only a body written in full ends with the last chunk; after a
+        // failure the connection is closed instead.
+        body.close();
+    }
+
+    private void writeFile(final HttpResponse response, final OutputStream outputStream, final SocketChannel channel)
+            throws IOException {
+        final long length = response.getContentLength();
+        try (final var file = FileChannel.open(response.getBodyFile())) {
+            if (channel != null && useSendfile && length >= sendfileSize) {
+                outputStream.write(buf, 0, count);
+                // the head has to reach the socket before the file does.
+                outputStream.flush();
+                NioChannels.transfer(file, response.getBodyFilePosition(), length, channel);
+                return;
+            }
+            file.position(response.getBodyFilePosition());
+            copy(file, length, outputStream);
+        }
+    }
+
+    private void writeBuffers(final ByteBuffer[] body, final OutputStream outputStream, final SocketChannel channel)
+            throws IOException {
+        if (channel != null) {
+            // responses queued ahead of this one have to reach the socket first.
+            outputStream.flush();
+            final ByteBuffer[] buffers = new ByteBuffer[body.length + 1];
+            buffers[0] = ByteBuffer.wrap(buf, 0, count);
+            System.arraycopy(body, 0, buffers, 1, body.length);
+            NioChannels.write(channel, buffers);
+            return;
+        }
+        outputStream.write(buf, 0, count);
+        for (ByteBuffer buffer : body) {
+            copy(buffer, outputStream);
+        }
+    }
+
+    private void copy(final ByteBuffer buffer, final OutputStream outputStream) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int length = Math.min(buf.length, buffer.remaining());
+            buffer.get(buf, 0, length);
+            outputStream.write(buf, 0, length);
+        }
+    }
+
+    private void copy(final FileChannel file, final long length, final OutputStream outputStream) throws IOException {
+        final var window = ByteBuffer.wrap(buf);
+        window.position(count);
+        long remaining = length;
+        while (remaining > 0) {
+            window.limit((int) Math.min(buf.length, window.position() + remaining));
+            final int read = file.read(window);
+            if (read < 0) {
+                throw new EOFException("File ended before " + length + " bytes were sent.");
+            }
+            remaining -= read;
+            if (!window.hasRemaining()) {
+                outputStream.write(buf, 0, window.position());
+                window.clear();
+            }
+        }
+        if (window.position() > 0) {
+            outputStream.write(buf, 0, window.position());
+        }
+    }
+
+    private void appendHeader(final HttpHeader name, final String value) {
+        append(name.getFieldPrefix());
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            // header values are ISO-8859-1; anything else cannot be sent as is.
+            buf[count++] = c > 0xff ? (byte) '?' : (byte) c;
+        }
+        append(FIELD_END);
+    }
+
+    private void appendDecimal(final long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        long rest = value;
+        for (int i = count + digits - 1; i >= count; i--) {
+            buf[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        count += digits;
+    }
+
+    private void append(final byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ensureCapacity(final int length) {
+        if (count + length > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+        }
+    }
+}
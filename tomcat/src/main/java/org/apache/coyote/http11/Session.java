@@ -1,29 +1,438 @@
 package org.apache.coyote.http11;
 
-import java.util.HashMap;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A login session. Requests that share it may run at the same time, so its
+ * attributes are safe to read and write concurrently. Most sessions hold
+ * only a few, which are kept in a small immutable array replaced on every
+ * change; reads never lock. A session that outgrows the array switches to a
+ * concurrent map for good.
+ */
+public class Session implements HttpSession {
+
+    private static final Logger log = LoggerFactory.getLogger(Session.class);
+
+    private static final int DEFAULT_MAX_INACTIVE_INTERVAL = 30 * 60;
+    private static final int INLINE_ATTRIBUTES = 4;
+    // bounds what a stored attribute may unpack into when it is restored.
+    private static final ObjectInputFilter ATTRIBUTE_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;maxrefs=10000;maxarray=65536;maxbytes=1048576");
 
-public class Session {
     private final String id;
-    private final Map<String, Object> values = new HashMap<>();
+    // null, an array of alternating names and values holding at most
+    // INLINE_ATTRIBUTES entries, or a ConcurrentHashMap once there are more.
+    private volatile Object attributes;
+    private final long creationTime;
+    private volatile long lastAccessedTime;
+    private volatile int maxInactiveInterval;
+    private volatile boolean isNew = true;
+    private volatile boolean valid = true;
+    // set on use and cleared by the manager's eviction clock.
+    private volatile boolean referenced;
+    private volatile SessionManager manager;
 
     public Session(String id) {
+        this(id, DEFAULT_MAX_INACTIVE_INTERVAL);
+    }
+
+    /**
+     * @param maxInactiveInterval seconds the session may go unused before it expires; 0 or less never expires
+     */
+    public Session(String id, int maxInactiveInterval) {
+        this(id, maxInactiveInterval, System.currentTimeMillis());
+    }
+
+    private Session(String id, int maxInactiveInterval, long creationTime) {
         this.id = id;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = creationTime;
     }
 
     public void add(String key, Object value){
-        values.put(key, value);
+        setAttribute(key, value);
     }
 
     public void remove(String key){
-        values.remove(key);
-    }
-
-    public Object getValue(String key){
-        return values.get(key);
+        removeAttribute(key);
     }
 
+    @Override
     public String getId(){
         return id;
     }
+
+    @Override
+    public long getCreationTime() {
+        checkValid();
+        return creationTime;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        checkValid();
+        return lastAccessedTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int maxInactiveInterval) {
+        this.maxInactiveInterval = maxInactiveInterval;
+    }
+
+    @Override
+    @Deprecated
+    public HttpSessionContext getSessionContext() {
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        checkValid();
+        if (name == null) {
+            return null;
+        }
+        Object current = attributes;
+        if (current instanceof Object[] inline) {
+            for (int i = 0; i < inline.length; i += 2) {
+                if (inline[i].equals(name)) {
+                    return inline[i + 1];
+                }
+            }
+            return null;
+        }
+        if (current == null) {
+            return null;
+        }
+        return asMap(current).get(name);
+    }
+
+    @Override
+    @Deprecated
+    public Object getValue(String name) {
+        return getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        checkValid();
+        return Collections.enumeration(attributeNames());
+    }
+
+    @Override
+    @Deprecated
+    public String[] getValueNames() {
+        checkValid();
+        return attributeNames().toArray(String[]::new);
+    }
+
+    private List<String> attributeNames() {
+        Object current = attributes;
+        if (current instanceof Object[] inline) {
+            List<String> names = new ArrayList<>(inline.length / 2);
+            for (int i = 0; i < inline.length; i += 2) {
+                names.add((String) inline[i]);
+            }
+            return names;
+        }
+        if (current == null) {
+            return List.of();
+        }
+        return new ArrayList<>(asMap(current).keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (name == null) {
+            throw new IllegalArgumentException("Session attribute name must not be null.");
+        }
+        checkValid();
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        putAttribute(name, value);
+        attributesChanged();
+    }
+
+    private synchronized void putAttribute(String name, Object value) {
+        // checked again under the lock, so an expired session gets nothing back.
+        checkValid();
+        Object current = attributes;
+        if (current == null) {
+            attributes = new Object[]{name, value};
+            return;
+        }
+        if (!(current instanceof Object[] inline)) {
+            asMap(current).put(name, value);
+            return;
+        }
+        int index = indexOf(inline, name);
+        if (index >= 0) {
+            Object[] replaced = inline.clone();
+            replaced[index + 1] = value;
+            attributes = replaced;
+            return;
+        }
+        if (inline.length < INLINE_ATTRIBUTES * 2) {
+            Object[] grown = Arrays.copyOf(inline, inline.length + 2);
+            grown[inline.length] = name;
+            grown[inline.length + 1] = value;
+            attributes = grown;
+            return;
+        }
+        Map<String, Object> map = new ConcurrentHashMap<>(INLINE_ATTRIBUTES * 4);
+        for (int i = 0; i < inline.length; i += 2) {
+            map.put((String) inline[i], inline[i + 1]);
+        }
+        map.put(name, value);
+        attributes = map;
+    }
+
+    @Override
+    @Deprecated
+    public void putValue(String name, Object value) {
+        setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        checkValid();
+        if (name != null && deleteAttribute(name)) {
+            attributesChanged();
+        }
+    }
+
+    private synchronized boolean deleteAttribute(String name) {
+        Object current = attributes;
+        if (current == null) {
+            return false;
+        }
+        if (!(current instanceof Object[] inline)) {
+            return asMap(current).remove(name) != null;
+        }
+        int index = indexOf(inline, name);
+        if (index < 0) {
+            return false;
+        }
+        if (inline.length == 2) {
+            attributes = null;
+            return true;
+        }
+        Object[] shrunk = new Object[inline.length - 2];
+        System.arraycopy(inline, 0, shrunk, 0, index);
+        System.arraycopy(inline, index + 2, shrunk, index, inline.length - index - 2);
+        attributes = shrunk;
+        return true;
+    }
+
+    private void attributesChanged() {
+        SessionManager current = manager;
+        if (current != null) {
+            current.attributesChanged(this);
+        }
+    }
+
+    private static int indexOf(Object[] inline, String name) {
+        for (int i = 0; i < inline.length; i += 2) {
+            if (inline[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object attributes) {
+        return (Map<String, Object>) attributes;
+    }
+
+    @Override
+    @Deprecated
+    public void removeValue(String name) {
+        removeAttribute(name);
+    }
+
+    @Override
+    public void invalidate() {
+        checkValid();
+        SessionManager current = manager;
+        if (current != null) {
+            current.remove(this);
+        }
+        expire();
+    }
+
+    @Override
+    public boolean isNew() {
+        checkValid();
+        return isNew;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    private void checkValid() {
+        if (!valid) {
+            throw new IllegalStateException("Session " + id + " has been invalidated.");
+        }
+    }
+
+    void setManager(SessionManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Records that a request used the session, which restarts its inactive interval.
+     */
+    void access(long now) {
+        lastAccessedTime = now;
+        isNew = false;
+        if (!referenced) {
+            // skip the write when it is already set so a busy session's cache line stays shared.
+            referenced = true;
+        }
+    }
+
+    /**
+     * Clears the used mark and returns whether it was set.
+     */
+    boolean clearReferenced() {
+        if (!referenced) {
+            return false;
+        }
+        referenced = false;
+        return true;
+    }
+
+    boolean isExpired(long now) {
+        final int interval = maxInactiveInterval;
+        return interval > 0 && now - lastAccessedTime >= interval * 1000L;
+    }
+
+    /**
+     * Marks the session invalid once its manager no longer holds it.
+     */
+    synchronized void expire() {
+        valid = false;
+        manager = null;
+        attributes = null;
+    }
+
+    /**
+     * Writes the session's state for {@link #readObjectData}. Attributes
+     * whose values cannot be serialized are left out. Returns {@code false}
+     * if the session was invalidated meanwhile, in which case what was
+     * written must be discarded.
+     */
+    boolean writeObjectData(DataOutput out) throws IOException {
+        out.writeUTF(id);
+        out.writeLong(creationTime);
+        out.writeLong(lastAccessedTime);
+        out.writeInt(maxInactiveInterval);
+        // read the field itself; getAttribute would throw once the session is invalidated.
+        Object snapshot = attributes;
+        List<String> names = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        if (snapshot instanceof Object[] inline) {
+            for (int i = 0; i < inline.length; i += 2) {
+                addSerialized((String) inline[i], inline[i + 1], names, values);
+            }
+        } else if (snapshot != null) {
+            for (Map.Entry<String, Object> entry : asMap(snapshot).entrySet()) {
+                addSerialized(entry.getKey(), entry.getValue(), names, values);
+            }
+        }
+        out.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            out.writeUTF(names.get(i));
+            out.writeInt(values.get(i).length);
+            out.write(values.get(i));
+        }
+        // expire() clears valid before the attributes, so a snapshot it emptied is caught here.
+        return valid;
+    }
+
+    private static void addSerialized(String name, Object value, List<String> names, List<byte[]> values)
+            throws IOException {
+        byte[] serialized = serialize(name, value);
+        if (serialized != null) {
+            names.add(name);
+            values.add(serialized);
+        }
+    }
+
+    private static byte[] serialize(String name, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            log.debug("Session attribute {} is not serializable and will not be stored.", name);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a session written by {@link #writeObjectData}. It is no longer
+     * new. An attribute whose class cannot be found, or that exceeds the
+     * limits of {@link #ATTRIBUTE_FILTER}, is dropped.
+     */
+    static Session readObjectData(DataInput in) throws IOException {
+        String id = in.readUTF();
+        long creationTime = in.readLong();
+        long lastAccessedTime = in.readLong();
+        Session session = new Session(id, in.readInt(), creationTime);
+        session.lastAccessedTime = lastAccessedTime;
+        session.isNew = false;
+        for (int count = in.readInt(); count > 0; count--) {
+            String name = in.readUTF();
+            byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            try (ObjectInputStream values = new ObjectInputStream(new ByteArrayInputStream(value))) {
+                values.setObjectInputFilter(attributeFilter());
+                session.putAttribute(name, values.readObject());
+            } catch (ClassNotFoundException | InvalidClassException e) {
+                log.warn("Dropping attribute {} of session {}: {}", name, id, e.getMessage());
+            }
+        }
+        return session;
+    }
+
+    private static ObjectInputFilter attributeFilter() {
+        ObjectInputFilter global = ObjectInputFilter.Config.getSerialFilter();
+        return global == null ? ATTRIBUTE_FILTER : ObjectInputFilter.merge(ATTRIBUTE_FILTER, global);
+    }
 }
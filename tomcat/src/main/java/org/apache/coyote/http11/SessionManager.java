@@ -1,27 +1,455 @@
 package org.apache.coyote.http11;
 
+import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.catalina.Manager;
+import org.apache.catalina.SessionIdGenerator;
+import org.apache.catalina.util.StandardSessionIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class SessionManager {
+/**
+ * Keeps the sessions created at login. A session unused for longer than its
+ * max inactive interval is dropped when it is next looked up, and while the
+ * manager is started a background sweeper removes the ones nobody looks up
+ * again, so requests never pay for a scan of every session.
+ * <p>
+ * At most {@code maxActiveSessions} sessions are held, which bounds the heap
+ * they take. When a new one would exceed that, the {@link OverflowPolicy}
+ * decides whether a session that has not been used recently makes room or
+ * the new one is refused. Lookups only read a concurrent map and mark the
+ * session used; recency is tracked with the CLOCK approximation of LRU, a
+ * queue in creation order where a session used since the hand last passed
+ * it gets a second chance, so nothing is reordered or locked per request.
+ * <p>
+ * With a {@link FileSessionStore} every session that is added, changed or
+ * removed is also written to disk, and the sessions of a previous run are
+ * restored. That happens lazily: the log is read when a session is first
+ * looked up, and each session is decoded when its id is first presented, so
+ * a restart neither delays startup nor logs everyone out at once.
+ */
+public class SessionManager implements Manager {
 
-    private static final Map<String, Session> SESSIONS = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
+
+    private static final int DEFAULT_MAX_INACTIVE_INTERVAL = 30 * 60;
+    private static final long PROCESS_EXPIRES_PERIOD_SECONDS = 60;
+    private static final int COMPACTION_MIN_RECORDS = 1024;
+
+    private static final ScheduledExecutorService EXPIRER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "session-expirer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * What {@link #add} does when {@code maxActiveSessions} are already held.
+     */
+    public enum OverflowPolicy {
+        /** Remove a session that has not been used recently to make room. */
+        EVICT,
+        /** Refuse the new session with a {@link TooManyActiveSessionsException}. */
+        REJECT
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Queue<Session> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private volatile SessionIdGenerator sessionIdGenerator = new StandardSessionIdGenerator();
+    private volatile int maxInactiveInterval;
+    private volatile int maxActiveSessions = -1;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.EVICT;
+    private volatile FileSessionStore store;
+    // records of the stored sessions not yet restored; null until the store is read.
+    private volatile Map<String, byte[]> unrestored;
+    private ScheduledFuture<?> expirer;
+
+    public SessionManager() {
+        this(DEFAULT_MAX_INACTIVE_INTERVAL);
+    }
+
+    /**
+     * @param maxInactiveInterval seconds a new session may go unused before it expires
+     */
+    public SessionManager(int maxInactiveInterval) {
+        this.maxInactiveInterval = maxInactiveInterval;
+    }
+
+    public void setMaxInactiveInterval(int maxInactiveInterval) {
+        this.maxInactiveInterval = maxInactiveInterval;
+    }
+
+    /**
+     * Sessions held at most; -1, the default, means unlimited.
+     */
+    public void setMaxActiveSessions(int maxActiveSessions) {
+        this.maxActiveSessions = maxActiveSessions;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setSessionIdGenerator(SessionIdGenerator sessionIdGenerator) {
+        this.sessionIdGenerator = sessionIdGenerator;
+    }
+
+    public SessionIdGenerator getSessionIdGenerator() {
+        return sessionIdGenerator;
+    }
+
+    /**
+     * Persists sessions to {@code store} and restores the ones it holds.
+     * Must be set before the manager is started.
+     */
+    public void setStore(FileSessionStore store) {
+        this.store = store;
+        this.unrestored = null;
+    }
+
+    public FileSessionStore getStore() {
+        return store;
+    }
+
+    /**
+     * Starts sweeping expired sessions in the background.
+     */
+    public synchronized void start() {
+        if (expirer == null) {
+            expirer = EXPIRER.scheduleWithFixedDelay(this::backgroundProcess,
+                    PROCESS_EXPIRES_PERIOD_SECONDS, PROCESS_EXPIRES_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the sweeper and, if a store was used, compacts it so that it
+     * holds every session with its latest access time.
+     */
+    public synchronized void stop() {
+        if (expirer != null) {
+            expirer.cancel(false);
+            expirer = null;
+        }
+        FileSessionStore current = store;
+        Map<String, byte[]> pending = unrestored;
+        if (current == null || pending == null) {
+            return;
+        }
+        try {
+            current.compact(sessions.values(), pending.values());
+            current.close();
+        } catch (IOException e) {
+            log.warn("Could not save sessions to {}: {}", current.getFile(), e.getMessage());
+        }
+        unrestored = null;
+    }
+
+    private void backgroundProcess() {
+        // an exception escaping here would cancel the schedule for good.
+        try {
+            long now = System.currentTimeMillis();
+            processExpires(now);
+            compactStore(now);
+        } catch (RuntimeException e) {
+            log.error("Session background processing failed.", e);
+        }
+    }
 
     public Session createSession(){
-        String id = UUID.randomUUID().toString();
-        return new Session(id);
+        String id = sessionIdGenerator.generateSessionId();
+        return new Session(id, maxInactiveInterval);
+    }
+
+    @Override
+    public void add(HttpSession session) {
+        if (!(session instanceof Session)) {
+            throw new IllegalArgumentException("Unsupported session type: " + session.getClass().getName());
+        }
+        add((Session) session);
     }
 
+    /**
+     * @throws TooManyActiveSessionsException if the manager is full and its policy is to reject
+     */
     public void add(Session session) {
-        SESSIONS.put(session.getId(), session);
+        reserve();
+        session.setManager(this);
+        Session previous = sessions.put(session.getId(), session);
+        if (previous != null) {
+            activeCount.decrementAndGet();
+            previous.expire();
+        }
+        clock.offer(session);
+        persist(session);
     }
 
+    /**
+     * Called by a session held here after its attributes change.
+     */
+    void attributesChanged(Session session) {
+        if (sessions.get(session.getId()) == session) {
+            persist(session);
+        }
+    }
+
+    private void reserve() {
+        while (true) {
+            int max = maxActiveSessions;
+            int active = activeCount.get();
+            if (max < 0 || active < max) {
+                if (activeCount.compareAndSet(active, active + 1)) {
+                    return;
+                }
+                continue;
+            }
+            if (overflowPolicy == OverflowPolicy.REJECT || !evictOne()) {
+                rejectedCount.increment();
+                throw new TooManyActiveSessionsException(max);
+            }
+        }
+    }
+
+    /**
+     * Advances the clock hand to the first session not used since the hand
+     * last passed it and removes that session.
+     */
+    private boolean evictOne() {
+        // every session gets at most one second chance, so two rounds suffice.
+        int steps = 2 * activeCount.get() + 1;
+        while (steps > 0) {
+            Session candidate = clock.poll();
+            if (candidate == null) {
+                return false;
+            }
+            if (sessions.get(candidate.getId()) != candidate) {
+                // removed already; drop the stale entry without spending a step on it.
+                continue;
+            }
+            steps--;
+            if (candidate.clearReferenced()) {
+                clock.offer(candidate);
+                continue;
+            }
+            if (removeSession(candidate)) {
+                evictedCount.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the session and marks it as used, or {@code null} if there is
+     * none or it has expired.
+     */
+    @Override
     public Session findSession(String id) {
-        return SESSIONS.get(id);
+        Session session = sessions.get(id);
+        if (session == null) {
+            session = restore(id);
+        }
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            if (removeSession(session)) {
+                expiredCount.increment();
+            }
+            return null;
+        }
+        session.access(now);
+        return session;
+    }
+
+    @Override
+    public void remove(HttpSession session) {
+        if (session instanceof Session) {
+            removeSession((Session) session);
+        }
     }
 
     public void remove(String id) {
-        SESSIONS.remove(id);
+        Session session = sessions.get(id);
+        if (session != null) {
+            removeSession(session);
+        }
+    }
+
+    private boolean removeSession(Session session) {
+        if (!sessions.remove(session.getId(), session)) {
+            return false;
+        }
+        activeCount.decrementAndGet();
+        session.expire();
+        unpersist(session.getId());
+        return true;
+    }
+
+    private void persist(Session session) {
+        FileSessionStore current = store;
+        if (current == null) {
+            return;
+        }
+        // the old log must be read before anything is appended to it.
+        unrestored(current);
+        try {
+            current.save(session);
+        } catch (IOException e) {
+            log.warn("Could not save session to {}: {}", current.getFile(), e.getMessage());
+        }
+    }
+
+    private void unpersist(String id) {
+        FileSessionStore current = store;
+        if (current == null) {
+            return;
+        }
+        unrestored(current);
+        try {
+            current.remove(id);
+        } catch (IOException e) {
+            log.warn("Could not remove session from {}: {}", current.getFile(), e.getMessage());
+        }
+    }
+
+    private Map<String, byte[]> unrestored(FileSessionStore current) {
+        Map<String, byte[]> pending = unrestored;
+        if (pending != null) {
+            return pending;
+        }
+        synchronized (current) {
+            if (unrestored == null) {
+                Map<String, byte[]> records = new ConcurrentHashMap<>();
+                try {
+                    records.putAll(current.load());
+                } catch (IOException e) {
+                    log.warn("Could not read sessions from {}: {}", current.getFile(), e.getMessage());
+                }
+                records.keySet().removeAll(sessions.keySet());
+                log.info("Read {} stored sessions from {}.", records.size(), current.getFile());
+                unrestored = records;
+            }
+            return unrestored;
+        }
+    }
+
+    /**
+     * Brings back a session of a previous run the first time its id is
+     * presented, or returns {@code null}.
+     */
+    private Session restore(String id) {
+        FileSessionStore current = store;
+        if (current == null) {
+            return null;
+        }
+        Map<String, byte[]> pending = unrestored(current);
+        if (!pending.containsKey(id)) {
+            // a concurrent restore puts the session before it drops the record.
+            return sessions.get(id);
+        }
+        synchronized (pending) {
+            Session session = sessions.get(id);
+            byte[] record = pending.get(id);
+            if (session != null || record == null) {
+                return session;
+            }
+            try {
+                if (FileSessionStore.isExpired(record, System.currentTimeMillis())) {
+                    pending.remove(id);
+                    return null;
+                }
+                session = FileSessionStore.decode(record);
+                reserve();
+            } catch (IOException | TooManyActiveSessionsException e) {
+                log.warn("Could not restore session {}: {}", id, e.getMessage());
+                pending.remove(id);
+                return null;
+            }
+            session.setManager(this);
+            sessions.put(id, session);
+            clock.offer(session);
+            pending.remove(id);
+            return session;
+        }
+    }
+
+    /**
+     * Rewrites the store once most of its records are superseded, dropping
+     * the stored sessions that expired before anyone asked for them.
+     */
+    private void compactStore(long now) {
+        FileSessionStore current = store;
+        Map<String, byte[]> pending = unrestored;
+        if (current == null || pending == null) {
+            return;
+        }
+        pending.values().removeIf(record -> {
+            try {
+                return FileSessionStore.isExpired(record, now);
+            } catch (IOException e) {
+                return true;
+            }
+        });
+        if (current.getRecordCount() <= COMPACTION_MIN_RECORDS
+                || current.getRecordCount() <= 2 * (activeCount.get() + pending.size())) {
+            return;
+        }
+        try {
+            current.compact(sessions.values(), pending.values());
+        } catch (IOException e) {
+            log.warn("Could not compact {}: {}", current.getFile(), e.getMessage());
+        }
+    }
+
+    /**
+     * Removes every session that has expired by {@code now}, and the clock
+     * entries of sessions removed since the last run. Runs on the sweeper
+     * thread.
+     */
+    int processExpires(long now) {
+        int expired = 0;
+        for (Iterator<Session> iterator = sessions.values().iterator(); iterator.hasNext(); ) {
+            Session session = iterator.next();
+            if (session.isExpired(now) && removeSession(session)) {
+                expired++;
+            }
+        }
+        clock.removeIf(session -> !session.isValid());
+        expiredCount.add(expired);
+        if (expired > 0) {
+            log.debug("Expired {} sessions, {} remain.", expired, activeCount.get());
+        }
+        return expired;
+    }
+
+    public int getActiveSessions() {
+        return activeCount.get();
+    }
+
+    public long getExpiredSessions() {
+        return expiredCount.sum();
+    }
+
+    public long getEvictedSessions() {
+        return evictedCount.sum();
+    }
+
+    public long getRejectedSessions() {
+        return rejectedCount.sum();
     }
 }
@@ -0,0 +1,21 @@
+package org.apache.coyote.http11;
+
+/**
+ * Thrown when a session is added to a {@link SessionManager} that already
+ * holds its maximum and is set to reject new ones.
+ */
+public class TooManyActiveSessionsException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxActiveSessions;
+
+    public TooManyActiveSessionsException(final int maxActiveSessions) {
+        super("Too many active sessions: " + maxActiveSessions);
+        this.maxActiveSessions = maxActiveSessions;
+    }
+
+    public int getMaxActiveSessions() {
+        return maxActiveSessions;
+    }
+}
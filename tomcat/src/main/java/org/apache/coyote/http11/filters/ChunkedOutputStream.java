@@ -0,0 +1,85 @@
+package org.apache.coyote.http11.filters;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames what is written to it as the chunked transfer coding. Bytes are
+ * collected until the buffer is full or the stream is flushed, so small
+ * writes do not become small chunks; a full chunk is flushed through to the
+ * connection so that a long body never piles up in front of it. Closing
+ * writes the last chunk but does not close the underlying stream, which
+ * belongs to the connection.
+ */
+public class ChunkedOutputStream extends FilterOutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final byte[] buf;
+    private int count;
+    private boolean closed;
+
+    public ChunkedOutputStream(final OutputStream out, final int bufferSize) {
+        super(out);
+        this.buf = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (count == buf.length) {
+            flush();
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buf.length) {
+                flush();
+            }
+            final int length = Math.min(len, buf.length - count);
+            System.arraycopy(b, off, buf, count, length);
+            count += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writeChunk();
+        out.write(LAST_CHUNK);
+    }
+
+    private void writeChunk() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        final byte[] size = new byte[10];
+        int position = size.length;
+        size[--position] = '\n';
+        size[--position] = '\r';
+        for (int rest = count; rest > 0; rest >>>= 4) {
+            size[--position] = HEX[rest & 0xf];
+        }
+        out.write(size, position, size.length - position);
+        out.write(buf, 0, count);
+        out.write(CRLF);
+        count = 0;
+    }
+}
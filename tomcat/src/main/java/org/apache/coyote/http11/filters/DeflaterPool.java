@@ -0,0 +1,56 @@
+package org.apache.coyote.http11.filters;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.zip.Deflater;
+
+/**
+ * Reuses {@link Deflater}s, whose native state is expensive to create and is
+ * only freed by {@link Deflater#end()}. At most {@code maxActive} are handed
+ * out at a time; beyond that {@link #borrow()} returns {@code null} and the
+ * caller sends its response uncompressed, so the CPU and native memory spent
+ * on compression stay bounded however many connections there are.
+ */
+public class DeflaterPool {
+
+    private final int level;
+    private final Semaphore permits;
+    private final BlockingQueue<Deflater> idle;
+
+    public DeflaterPool(final int maxActive, final int level) {
+        this.level = level;
+        this.permits = new Semaphore(maxActive);
+        this.idle = new ArrayBlockingQueue<>(Math.max(maxActive, 1));
+    }
+
+    /**
+     * Returns a deflater that writes raw deflate data, or {@code null} if all
+     * of them are in use.
+     */
+    public Deflater borrow() {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        final Deflater deflater = idle.poll();
+        if (deflater != null) {
+            return deflater;
+        }
+        return new Deflater(level, true);
+    }
+
+    public void release(final Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+        permits.release();
+    }
+
+    /**
+     * Returns how many deflaters are waiting to be reused.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,56 @@
+package org.apache.coyote.http11.filters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes the gzip format with a deflater it does not own, unlike
+ * {@link java.util.zip.GZIPOutputStream}, so the deflater can come from a
+ * {@link DeflaterPool}. A flush pushes out everything written so far, so a
+ * streamed body is not held back by the compressor. Closing finishes the
+ * gzip member and closes the underlying stream, but leaves the deflater to
+ * its owner.
+ */
+public class GzipOutputStream extends DeflaterOutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final CRC32 crc = new CRC32();
+    private boolean finished;
+
+    /**
+     * @param deflater a reset deflater that writes raw deflate data
+     */
+    public GzipOutputStream(final OutputStream out, final Deflater deflater) throws IOException {
+        super(out, deflater, BUFFER_SIZE, true);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        super.finish();
+        writeInt((int) crc.getValue());
+        writeInt((int) def.getBytesRead());
+    }
+
+    private void writeInt(final int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+}
@@ -0,0 +1,49 @@
+package org.apache.tomcat.util.http;
+
+import java.util.List;
+
+/**
+ * Reads Accept-Encoding headers, e.g. {@code gzip, deflate;q=0.5, *;q=0}.
+ */
+public final class AcceptEncoding {
+
+    /**
+     * Returns whether the headers allow a response in {@code encoding}. A
+     * coding named with a zero quality value is refused; one not named at all
+     * is accepted only through a {@code *} with a non-zero quality value.
+     */
+    public static boolean isAccepted(final List<String> headers, final String encoding) {
+        Boolean wildcard = null;
+        for (String header : headers) {
+            for (String element : header.split(",")) {
+                final int semicolon = element.indexOf(';');
+                final String coding = (semicolon < 0 ? element : element.substring(0, semicolon)).trim();
+                final boolean accepted = semicolon < 0 || hasNonZeroQuality(element.substring(semicolon + 1));
+                if (coding.equalsIgnoreCase(encoding)) {
+                    return accepted;
+                }
+                if ("*".equals(coding)) {
+                    wildcard = accepted;
+                }
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static boolean hasNonZeroQuality(final String parameters) {
+        for (String parameter : parameters.split(";")) {
+            final int equals = parameter.indexOf('=');
+            if (equals < 0 || !"q".equalsIgnoreCase(parameter.substring(0, equals).trim())) {
+                continue;
+            }
+            try {
+                return Double.parseDouble(parameter.substring(equals + 1).trim()) > 0;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AcceptEncoding() {}
+}
@@ -0,0 +1,37 @@
+package org.apache.tomcat.util.http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Reads and writes the IMF-fixdate form of HTTP dates, e.g.
+ * {@code Sun, 06 Nov 1994 08:49:37 GMT}.
+ */
+public final class FastHttpDateFormat {
+
+    private static final DateTimeFormatter PARSER = DateTimeFormatter.RFC_1123_DATE_TIME;
+    // RFC_1123_DATE_TIME writes single digit days, which IMF-fixdate does not allow.
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    /**
+     * @return the date in epoch milliseconds, or -1 if it cannot be parsed
+     */
+    public static long parseDate(final String value) {
+        try {
+            return ZonedDateTime.parse(value, PARSER).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    public static String formatDate(final long epochMillis) {
+        return FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    private FastHttpDateFormat() {}
+}
@@ -0,0 +1,107 @@
+package org.apache.tomcat.util.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+public final class NioChannels {
+
+    private static final long WRITE_TIMEOUT_MILLIS = 20_000;
+
+    /**
+     * Write every remaining byte to a non-blocking channel. When the socket
+     * send buffer is full the calling worker waits on a private selector
+     * instead of spinning, so the poller never sees the write side.
+     */
+    public static void write(final SocketChannel channel, final ByteBuffer buffer) throws IOException {
+        Selector selector = null;
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) > 0) {
+                    continue;
+                }
+                selector = awaitWritable(channel, selector);
+            }
+        } finally {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    /**
+     * Gathering variant of {@link #write(SocketChannel, ByteBuffer)}: writes
+     * the remaining bytes of every buffer, in order, with as few system calls
+     * as the socket allows.
+     */
+    public static void write(final SocketChannel channel, final ByteBuffer... buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        Selector selector = null;
+        try {
+            while (remaining > 0) {
+                final long written = channel.write(buffers);
+                if (written > 0) {
+                    remaining -= written;
+                    continue;
+                }
+                selector = awaitWritable(channel, selector);
+            }
+        } finally {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    /**
+     * Sends {@code count} bytes of a file starting at {@code position}. Where
+     * the platform supports it the kernel copies them from the page cache to
+     * the socket without passing through the heap. Works on blocking and
+     * non-blocking channels; the latter wait like {@link #write}.
+     */
+    public static void transfer(final FileChannel file, long position, final long count, final SocketChannel channel)
+            throws IOException {
+        final long end = position + count;
+        Selector selector = null;
+        try {
+            while (position < end) {
+                final long transferred = file.transferTo(position, end - position, channel);
+                if (transferred > 0) {
+                    position += transferred;
+                    continue;
+                }
+                if (position >= file.size()) {
+                    throw new EOFException("File ended before " + count + " bytes were sent.");
+                }
+                selector = awaitWritable(channel, selector);
+            }
+        } finally {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    private static Selector awaitWritable(final SocketChannel channel, Selector selector) throws IOException {
+        if (selector == null) {
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_WRITE);
+        }
+        if (selector.select(WRITE_TIMEOUT_MILLIS) == 0) {
+            selector.close();
+            throw new SocketTimeoutException("Write timed out.");
+        }
+        selector.selectedKeys().clear();
+        return selector;
+    }
+
+    private NioChannels() {}
+}
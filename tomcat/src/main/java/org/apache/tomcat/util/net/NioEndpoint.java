@@ -0,0 +1,215 @@
+package org.apache.tomcat.util.net;
+
+import org.apache.coyote.ChannelProcessor;
+import org.apache.coyote.ChannelProcessor.SocketState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Non-blocking endpoint. A single poller thread accepts connections and waits
+ * for read readiness; only connections with data are handed to the worker
+ * executor, so idle connections do not hold a thread.
+ */
+public class NioEndpoint implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(NioEndpoint.class);
+
+    private static final int INPUT_BUFFER_SIZE = 8192;
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService executor;
+    private final int keepAliveTimeout;
+    private final Function<SocketChannel, ChannelProcessor> processorFactory;
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+    private final Selector selector;
+    private long lastTimeoutCheck;
+    private volatile boolean running;
+
+    public NioEndpoint(final ServerSocketChannel serverChannel, final ExecutorService executor, final int keepAliveTimeout,
+                       final Function<SocketChannel, ChannelProcessor> processorFactory) throws IOException {
+        this.serverChannel = serverChannel;
+        this.executor = executor;
+        this.keepAliveTimeout = keepAliveTimeout;
+        this.processorFactory = processorFactory;
+        this.selector = Selector.open();
+    }
+
+    public void start() throws IOException {
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        var thread = new Thread(this, "http-nio-poller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                runEvents();
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                closeIdleConnections();
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        closeSelector();
+    }
+
+    private void runEvents() {
+        Runnable event;
+        while ((event = events.poll()) != null) {
+            event.run();
+        }
+    }
+
+    /**
+     * Closes keep-alive connections that have been waiting for their next
+     * request longer than the keep-alive timeout. Runs at most once per select
+     * timeout, and skips connections currently owned by a worker. A timeout
+     * of 0 or less means connections may stay idle indefinitely, as a
+     * blocking socket's SO_TIMEOUT of 0 does.
+     */
+    private void closeIdleConnections() {
+        if (keepAliveTimeout <= 0) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        if (now - lastTimeoutCheck < SELECT_TIMEOUT_MILLIS) {
+            return;
+        }
+        lastTimeoutCheck = now;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection && key.isValid()
+                    && key.interestOps() == SelectionKey.OP_READ
+                    && now - connection.lastAccess > keepAliveTimeout) {
+                close(key);
+            }
+        }
+    }
+
+    private void handle(final SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        if (key.isReadable()) {
+            // stop polling the connection while a worker owns it.
+            key.interestOps(0);
+            dispatch(key);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new NioConnection(processorFactory.apply(channel)));
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private void dispatch(final SelectionKey key) {
+        try {
+            executor.execute(() -> process(key));
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected connection: {}", e.getMessage());
+            close(key);
+        }
+    }
+
+    private void process(final SelectionKey key) {
+        final var channel = (SocketChannel) key.channel();
+        final var connection = (NioConnection) key.attachment();
+        try {
+            final int read = channel.read(connection.input);
+            connection.input.flip();
+            final SocketState state = connection.processor.process(channel, connection.input);
+            // the processor has taken every byte; size limits are its to enforce.
+            connection.input.clear();
+            if (read < 0 || state == SocketState.CLOSED) {
+                close(key);
+                return;
+            }
+            connection.lastAccess = System.currentTimeMillis();
+            register(key);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            close(key);
+        }
+    }
+
+    private void register(final SelectionKey key) {
+        events.add(() -> {
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        });
+        selector.wakeup();
+    }
+
+    private void close(final SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void closeSelector() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.channel() != serverChannel) {
+                close(key);
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private static class NioConnection {
+
+        private final ChannelProcessor processor;
+        private final ByteBuffer input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private NioConnection(final ChannelProcessor processor) {
+            this.processor = processor;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Bounded work queue for {@link ThreadPoolExecutor}. A plain
+ * {@link java.util.concurrent.ThreadPoolExecutor} only grows past its core size
+ * once the queue is full; this queue refuses tasks while the pool can still
+ * grow, so new connections get a thread instead of waiting behind slow ones.
+ */
+public class TaskQueue extends LinkedBlockingQueue<Runnable> {
+
+    private transient volatile ThreadPoolExecutor parent;
+
+    public TaskQueue(final int capacity) {
+        super(capacity);
+    }
+
+    void setParent(final ThreadPoolExecutor parent) {
+        this.parent = parent;
+    }
+
+    boolean force(final Runnable task) {
+        return super.offer(task);
+    }
+
+    @Override
+    public boolean offer(final Runnable task) {
+        if (parent == null) {
+            return super.offer(task);
+        }
+        final int poolSize = parent.getPoolSize();
+        if (poolSize >= parent.getMaximumPoolSize()) {
+            return super.offer(task);
+        }
+        if (parent.getSubmittedCount() <= poolSize) {
+            return super.offer(task);
+        }
+        return false;
+    }
+}
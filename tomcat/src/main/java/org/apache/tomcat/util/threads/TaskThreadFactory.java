@@ -0,0 +1,23 @@
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TaskThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+    private final String namePrefix;
+    private final boolean daemon;
+
+    public TaskThreadFactory(final String namePrefix, final boolean daemon) {
+        this.namePrefix = namePrefix;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final var thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
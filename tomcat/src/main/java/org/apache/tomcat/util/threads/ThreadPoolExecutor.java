@@ -0,0 +1,53 @@
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker pool for connectors. Keeps {@code minSpareThreads} threads alive,
+ * grows up to {@code maxThreads} before queueing, and holds at most
+ * {@code maxQueueSize} waiting tasks; anything beyond that is rejected.
+ */
+public class ThreadPoolExecutor extends java.util.concurrent.ThreadPoolExecutor {
+
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    private final AtomicInteger submittedCount = new AtomicInteger(0);
+
+    public ThreadPoolExecutor(final int minSpareThreads, final int maxThreads, final int maxQueueSize,
+                              final ThreadFactory threadFactory) {
+        super(minSpareThreads, maxThreads, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new TaskQueue(maxQueueSize), threadFactory);
+        ((TaskQueue) getQueue()).setParent(this);
+        prestartAllCoreThreads();
+    }
+
+    public int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        submittedCount.incrementAndGet();
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException e) {
+            if (!(getQueue() instanceof TaskQueue queue)) {
+                submittedCount.decrementAndGet();
+                throw e;
+            }
+            // the pool reached maxThreads between offer() and addWorker(), so try the queue once more.
+            if (isShutdown() || !queue.force(command)) {
+                submittedCount.decrementAndGet();
+                throw new RejectedExecutionException("Work queue full.", e);
+            }
+        }
+    }
+
+    @Override
+    protected void afterExecute(final Runnable runnable, final Throwable throwable) {
+        submittedCount.decrementAndGet();
+    }
+}
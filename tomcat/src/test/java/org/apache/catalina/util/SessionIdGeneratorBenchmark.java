@@ -0,0 +1,63 @@
+package org.apache.catalina.util;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Measures session ids generated per second by 32 threads, against
+ * {@link UUID#randomUUID()} which this generator replaced. Run its main
+ * method by hand; it is not part of the test suite.
+ */
+public class SessionIdGeneratorBenchmark {
+
+    private static final int THREADS = 32;
+    private static final long WARMUP_MILLIS = 2_000;
+    private static final long MEASURE_MILLIS = 5_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        final var generator = new StandardSessionIdGenerator();
+        run("UUID.randomUUID", () -> UUID.randomUUID().toString());
+        run("StandardSessionIdGenerator", generator::generateSessionId);
+    }
+
+    private static void run(final String name, final Supplier<String> ids) throws InterruptedException {
+        measure(ids, WARMUP_MILLIS);
+        final long generated = measure(ids, MEASURE_MILLIS);
+        System.out.printf("%-28s %,12d ids/s with %d threads%n", name, generated * 1_000 / MEASURE_MILLIS, THREADS);
+    }
+
+    private static long measure(final Supplier<String> ids, final long millis) throws InterruptedException {
+        final var count = new LongAdder();
+        final var start = new CountDownLatch(1);
+        final var done = new CountDownLatch(THREADS);
+        final long[] deadline = new long[1];
+        for (int i = 0; i < THREADS; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long generated = 0;
+                int sink = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    sink += ids.get().length();
+                    generated++;
+                }
+                count.add(generated);
+                if (sink == 0) {
+                    System.out.println();
+                }
+                done.countDown();
+            });
+            thread.start();
+        }
+        deadline[0] = System.nanoTime() + millis * 1_000_000;
+        start.countDown();
+        done.await();
+        return count.sum();
+    }
+}
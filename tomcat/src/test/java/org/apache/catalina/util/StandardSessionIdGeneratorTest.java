@@ -0,0 +1,56 @@
+package org.apache.catalina.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StandardSessionIdGeneratorTest {
+
+    @Test
+    void encodesRandomBytesAsUnpaddedBase64url() {
+        // given
+        final int[][] lengths = {{1, 2}, {2, 3}, {3, 4}, {16, 22}, {32, 43}};
+
+        for (int[] length : lengths) {
+            // when
+            final String id = new StandardSessionIdGenerator(length[0]).generateSessionId();
+
+            // then
+            assertThat(id).hasSize(length[1]).matches("[A-Za-z0-9_-]+");
+        }
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws InterruptedException {
+        // given
+        final var generator = new StandardSessionIdGenerator();
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    ids.add(generator.generateSessionId());
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(ids).hasSize(8_000);
+    }
+
+    @Test
+    void rejectsEmptyIds() {
+        assertThatThrownBy(() -> new StandardSessionIdGenerator(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
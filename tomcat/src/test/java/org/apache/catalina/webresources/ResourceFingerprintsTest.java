@@ -0,0 +1,95 @@
+package org.apache.catalina.webresources;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResourceFingerprintsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fingerprintStaticFiles() throws IOException {
+        // given
+        write("css/styles.css", "body {}");
+        write("index.html", "<html></html>");
+
+        // when
+        final var fingerprints = ResourceFingerprints.scan(directory);
+
+        // then
+        final String uri = fingerprints.toFingerprintedUri("/css/styles.css");
+        assertThat(uri).matches("/resources/[A-Za-z0-9_-]{22}/css/styles\\.css");
+        assertThat(fingerprints.isCurrent(uri)).isTrue();
+        assertThat(ResourceFingerprints.stripFingerprint(uri)).isEqualTo("/css/styles.css");
+        assertThat(fingerprints.toFingerprintedUri("/index.html")).isNull();
+    }
+
+    @Test
+    void changeFingerprintWithContent() throws IOException {
+        // given
+        write("js/app.js", "let a = 1;");
+        final String before = ResourceFingerprints.scan(directory).toFingerprintedUri("/js/app.js");
+        write("js/app.js", "let a = 2;");
+
+        // when
+        final var fingerprints = ResourceFingerprints.scan(directory);
+
+        // then
+        assertThat(fingerprints.toFingerprintedUri("/js/app.js")).isNotEqualTo(before);
+        assertThat(fingerprints.isCurrent(before)).isFalse();
+    }
+
+    @Test
+    void rewriteReferencesToKnownFiles() throws IOException {
+        // given
+        write("css/styles.css", "body {}");
+        write("js/app.js", "let a = 1;");
+        final var fingerprints = ResourceFingerprints.scan(directory);
+        final String page = "<link href=\"css/styles.css\" rel=\"stylesheet\" />"
+                + "<script src=\"/js/app.js\"></script>"
+                + "<script src=\"https://cdn.example.com/lib.js\"></script>"
+                + "<a href=\"index.html\">Home</a>";
+
+        // when
+        final byte[] rewritten = fingerprints.rewrite(page.getBytes(StandardCharsets.UTF_8));
+
+        // then
+        assertThat(new String(rewritten, StandardCharsets.UTF_8)).isEqualTo(
+                "<link href=\"" + fingerprints.toFingerprintedUri("/css/styles.css") + "\" rel=\"stylesheet\" />"
+                        + "<script src=\"" + fingerprints.toFingerprintedUri("/js/app.js") + "\"></script>"
+                        + "<script src=\"https://cdn.example.com/lib.js\"></script>"
+                        + "<a href=\"index.html\">Home</a>");
+    }
+
+    @Test
+    void serveRewrittenPageFromCache() throws IOException {
+        // given
+        write("css/styles.css", "body {}");
+        final Path page = write("index.html", "<link href=\"css/styles.css\" />");
+        final var cache = new StaticResourceCache(10_000, 0, 60_000);
+        cache.setFingerprints(ResourceFingerprints.scan(directory));
+
+        // when
+        final CachedResource resource = cache.load("/index.html", page);
+
+        // then
+        final String expected = "<link href=\"" + cache.getFingerprints().toFingerprintedUri("/css/styles.css") + "\" />";
+        assertThat(resource.getContent()).isEqualTo(expected.getBytes(StandardCharsets.UTF_8));
+        assertThat(resource.getContentLength()).isEqualTo(expected.length());
+        assertThat(cache.get("/index.html")).isSameAs(resource);
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        final Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,167 @@
+package org.apache.catalina.webresources;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaticResourceCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void cacheLoadedResource() throws IOException {
+        // given
+        final var cache = new StaticResourceCache();
+        final Path file = write("index.html", 100);
+
+        // when
+        final CachedResource loaded = cache.load("/index.html", file);
+
+        // then
+        assertThat(cache.get("/index.html")).isSameAs(loaded);
+        assertThat(loaded.getContent()).hasSize(100);
+        assertThat(loaded.getContentType()).isEqualTo("text/html;charset=utf-8");
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(3_000, 1_000, 60_000);
+        cache.load("/a", write("a.html", 1_000));
+        cache.load("/b", write("b.html", 1_000));
+        cache.get("/a");
+
+        // when
+        cache.load("/c", write("c.html", 1_000));
+
+        // then
+        assertThat(cache.get("/a")).isNotNull();
+        assertThat(cache.get("/b")).isNull();
+        assertThat(cache.get("/c")).isNotNull();
+        assertThat(cache.getSize()).isLessThanOrEqualTo(3_000);
+    }
+
+    @Test
+    void keepOnlyMetadataOfLargeFile() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(10_000, 100, 60_000);
+
+        // when
+        final CachedResource resource = cache.load("/large.css", write("large.css", 1_000));
+
+        // then
+        assertThat(resource.getContent()).isNull();
+        assertThat(resource.getContentLength()).isEqualTo(1_000);
+        assertThat(cache.get("/large.css")).isSameAs(resource);
+    }
+
+    @Test
+    void fileSentFromDiskGetsETagFromSizeAndModificationTime() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(0, 0, 0);
+        final Path file = write("large.css", 1_000);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0x1000));
+        final String before = cache.load("/large.css", file).getETag();
+
+        // when
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0x2000));
+        final String after = cache.load("/large.css", file).getETag();
+
+        // then
+        assertThat(before).isEqualTo("\"3e8-1000\"");
+        assertThat(after).isEqualTo("\"3e8-2000\"");
+    }
+
+    @Test
+    void dropChangedResourceAfterTtl() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(10_000, 1_000, 0);
+        final Path file = write("index.html", 100);
+        cache.load("/index.html", file);
+
+        // when
+        Files.write(file, new byte[200]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+        // then
+        assertThat(cache.get("/index.html")).isNull();
+        assertThat(cache.getEntryCount()).isZero();
+    }
+
+    @Test
+    void keepLargeFileOffHeap() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(10_000, 100, 60_000, 10_000, 5_000);
+        cache.load("/styles.css", write("styles.css", 1_000));
+
+        // when
+        final CachedResource resource = cache.get("/styles.css");
+        final ByteBuffer first = resource.getDirectContent();
+        first.get(new byte[600]);
+        final ByteBuffer second = resource.getDirectContent();
+
+        // then
+        assertThat(resource.getContent()).isNull();
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.isReadOnly()).isTrue();
+        assertThat(second.remaining()).isEqualTo(1_000);
+        assertThat(cache.getOffHeapSize()).isEqualTo(1_000);
+        assertThat(cache.getOffHeapHitCount()).isEqualTo(1);
+        assertThat(cache.getOffHeapMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictOffHeapTierOnItsOwnBudget() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(10_000, 100, 60_000, 2_500, 2_500);
+        cache.load("/index.html", write("index.html", 50));
+        cache.load("/a.css", write("a.css", 1_000));
+        cache.load("/b.css", write("b.css", 1_000));
+
+        // when
+        cache.load("/c.css", write("c.css", 1_000));
+
+        // then
+        assertThat(cache.get("/index.html")).isNotNull();
+        assertThat(cache.get("/a.css")).isNull();
+        assertThat(cache.getOffHeapSize()).isEqualTo(2_000);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getOffHeapEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepGzipVariantOfCompressibleFile() throws IOException {
+        // given
+        final var cache = new StaticResourceCache(100_000, 10_000, 60_000);
+        cache.setCompression(1_000, Set.of("text/css"));
+
+        // when
+        final CachedResource styles = cache.load("/styles.css", write("styles.css", 5_000));
+        final CachedResource small = cache.load("/small.css", write("small.css", 500));
+        final CachedResource page = cache.load("/index.html", write("index.html", 5_000));
+
+        // then
+        try (final var gzip = new GZIPInputStream(new ByteArrayInputStream(styles.getGzipContent()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(styles.getContent());
+        }
+        assertThat(styles.getGzipETag()).isNotEqualTo(styles.getETag()).endsWith("-gzip\"");
+        assertThat(small.getGzipContent()).isNull();
+        assertThat(page.getGzipContent()).isNull();
+        assertThat(cache.getSize()).isGreaterThan(5_000 + 500 + 5_000);
+    }
+
+    private Path write(final String name, final int size) throws IOException {
+        return Files.write(directory.resolve(name), new byte[size]);
+    }
+}
@@ -0,0 +1,55 @@
+package org.apache.coyote.http11;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteRangeTest {
+
+    @Test
+    void parseRanges() {
+        // when
+        final List<ByteRange> ranges = ByteRange.parse("bytes=0-99, 200-, -50", 1_000);
+
+        // then
+        assertThat(ranges).extracting(range -> range.toContentRange(1_000))
+                .containsExactly("bytes 0-99/1000", "bytes 200-999/1000", "bytes 950-999/1000");
+    }
+
+    @Test
+    void clampLastPositionToLength() {
+        // when
+        final List<ByteRange> ranges = ByteRange.parse("bytes=900-5000", 1_000);
+
+        // then
+        assertThat(ranges).hasSize(1);
+        assertThat(ranges.get(0).toContentRange(1_000)).isEqualTo("bytes 900-999/1000");
+    }
+
+    @Test
+    void unsatisfiableRange() {
+        // when & then
+        assertThat(ByteRange.parse("bytes=1000-", 1_000)).isEmpty();
+        assertThat(ByteRange.parse("bytes=-0", 1_000)).isEmpty();
+    }
+
+    @Test
+    void ignoreInvalidOrAbusiveHeader() {
+        // when & then
+        assertThat(ByteRange.parse("items=0-1", 1_000)).isNull();
+        assertThat(ByteRange.parse("bytes=5-1", 1_000)).isNull();
+        assertThat(ByteRange.parse("bytes=a-b", 1_000)).isNull();
+        assertThat(ByteRange.parse("bytes=0-999, 0-999", 1_000)).isNull();
+        assertThat(ByteRange.parse("bytes=" + "1-1,".repeat(17), 1_000)).isNull();
+    }
+
+    @Test
+    void ignoreRangeSetWithoutRangeSpec() {
+        // when & then
+        assertThat(ByteRange.parse("bytes=", 1_000)).isNull();
+        assertThat(ByteRange.parse("bytes=,", 1_000)).isNull();
+        assertThat(ByteRange.parse("bytes= , ,", 1_000)).isNull();
+    }
+}
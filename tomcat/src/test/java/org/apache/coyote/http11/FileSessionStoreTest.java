@@ -0,0 +1,156 @@
+package org.apache.coyote.http11;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSessionStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadReturnsTheLastStateOfEverySessionNotRemoved() throws IOException {
+        // given
+        final var store = new FileSessionStore(dir.resolve("SESSIONS.log"));
+        final var kept = new Session("kept", 60);
+        final var removed = new Session("removed", 60);
+        store.save(kept);
+        store.save(removed);
+        kept.setAttribute("account", "gugu");
+        store.save(kept);
+        store.remove("removed");
+        store.close();
+
+        // when
+        final Map<String, byte[]> records = new FileSessionStore(store.getFile()).load();
+
+        // then
+        assertThat(records).containsOnlyKeys("kept");
+        final Session restored = FileSessionStore.decode(records.get("kept"));
+        assertThat(restored.getAttribute("account")).isEqualTo("gugu");
+        assertThat(restored.getCreationTime()).isEqualTo(kept.getCreationTime());
+        assertThat(restored.isNew()).isFalse();
+    }
+
+    @Test
+    void tornRecordAtTheEndIsCutOff() throws IOException {
+        // given
+        final var file = dir.resolve("SESSIONS.log");
+        final var store = new FileSessionStore(file);
+        store.save(new Session("whole", 60));
+        store.close();
+        final long whole = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // when
+        final var reopened = new FileSessionStore(file);
+        final Map<String, byte[]> records = reopened.load();
+        reopened.save(new Session("after", 60));
+        reopened.close();
+
+        // then
+        assertThat(records).containsOnlyKeys("whole");
+        assertThat(Files.size(file)).isGreaterThan(whole);
+        assertThat(new FileSessionStore(file).load()).containsOnlyKeys("whole", "after");
+    }
+
+    @Test
+    void compactKeepsOneRecordPerLiveSession() throws IOException {
+        // given
+        final var store = new FileSessionStore(dir.resolve("SESSIONS.log"));
+        final var live = new Session("live", 60);
+        final var invalid = new Session("invalid", 60);
+        for (int i = 0; i < 10; i++) {
+            live.setAttribute("count", i);
+            store.save(live);
+        }
+        store.save(invalid);
+        invalid.invalidate();
+        final byte[] unrestored = new FileSessionStore(store.getFile()).load().get("live");
+
+        // when
+        store.compact(List.of(live, invalid), List.of());
+
+        // then
+        assertThat(store.getRecordCount()).isEqualTo(1);
+        store.close();
+        final Map<String, byte[]> records = new FileSessionStore(store.getFile()).load();
+        assertThat(records).containsOnlyKeys("live");
+        assertThat(FileSessionStore.decode(records.get("live")).getAttribute("count")).isEqualTo(9);
+        assertThat(unrestored).isEqualTo(records.get("live"));
+    }
+
+    @Test
+    void invalidatedSessionIsNotWritten() throws IOException {
+        // given
+        final var store = new FileSessionStore(dir.resolve("SESSIONS.log"));
+        final var session = new Session("gone", 60);
+        session.setAttribute("account", "gugu");
+        session.invalidate();
+
+        // when
+        store.save(session);
+        store.compact(List.of(session), List.of());
+        store.close();
+
+        // then
+        assertThat(new FileSessionStore(store.getFile()).load()).isEmpty();
+    }
+
+    @Test
+    void attributesBeyondTheDeserializationLimitsAreDropped() throws IOException {
+        // given
+        Object[] nested = new Object[0];
+        for (int i = 0; i < 50; i++) {
+            nested = new Object[]{nested};
+        }
+        final var store = new FileSessionStore(dir.resolve("SESSIONS.log"));
+        final var session = new Session("nested", 60);
+        session.setAttribute("account", "gugu");
+        session.setAttribute("nested", nested);
+        store.save(session);
+        store.close();
+
+        // when
+        final byte[] record = new FileSessionStore(store.getFile()).load().get("nested");
+        final Session restored = FileSessionStore.decode(record);
+
+        // then
+        assertThat(restored.getAttribute("account")).isEqualTo("gugu");
+        assertThat(restored.getAttribute("nested")).isNull();
+    }
+
+    @Test
+    void compactToleratesSessionsInvalidatedMeanwhile() throws IOException {
+        // given
+        final var store = new FileSessionStore(dir.resolve("SESSIONS.log"));
+        final List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            final var session = new Session("s" + i, 60);
+            session.setAttribute("account", "gugu" + i);
+            sessions.add(session);
+        }
+
+        // when
+        final var invalidator = CompletableFuture.runAsync(() -> sessions.forEach(Session::invalidate));
+        for (int round = 0; round < 5; round++) {
+            store.compact(sessions, List.of());
+        }
+        invalidator.join();
+        store.compact(sessions, List.of());
+
+        // then
+        assertThat(store.getRecordCount()).isZero();
+        store.close();
+    }
+}
@@ -0,0 +1,318 @@
+package org.apache.coyote.http11;
+
+import org.apache.coyote.http11.Http11InputBuffer.State;
+import org.junit.jupiter.api.Test;
+import support.StubSocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Http11InputBufferTest {
+
+    private static final String REQUEST_BODY = "account=gugu&password=password";
+    private static final String REQUEST = String.join("\r\n",
+            "POST /login?redirect=index HTTP/1.1",
+            "Host: localhost:8080",
+            "Referer: http://localhost:8080/login",
+            "content-length: " + REQUEST_BODY.length(),
+            "",
+            REQUEST_BODY);
+    private static final String CHUNKED_REQUEST = String.join("\r\n",
+            "POST /login HTTP/1.1",
+            "Host: localhost:8080",
+            "Transfer-Encoding: chunked",
+            "",
+            "d;name=value",
+            "account=gugu&",
+            "11",
+            "password=password",
+            "0",
+            "Trailer: ignored",
+            "",
+            "");
+
+    @Test
+    void feedSplitAtEveryByteBoundary() throws IOException {
+        final byte[] request = new StubSocket(REQUEST).getInputStream().readAllBytes();
+
+        for (int split = 0; split < request.length; split++) {
+            // given
+            final var inputBuffer = new Http11InputBuffer();
+
+            // when
+            final State first = inputBuffer.feed(ByteBuffer.wrap(request, 0, split));
+            final State second = inputBuffer.feed(ByteBuffer.wrap(request, split, request.length - split));
+
+            // then
+            assertThat(first).as("split at %d", split).isNotEqualTo(State.COMPLETE);
+            assertThat(second).as("split at %d", split).isEqualTo(State.COMPLETE);
+            assertParsed(inputBuffer);
+        }
+    }
+
+    @Test
+    void feedOneByteAtATime() throws IOException {
+        // given
+        final byte[] request = new StubSocket(REQUEST).getInputStream().readAllBytes();
+        final var inputBuffer = new Http11InputBuffer();
+
+        // when
+        for (byte b : request) {
+            assertThat(inputBuffer.getState()).isNotEqualTo(State.COMPLETE);
+            inputBuffer.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+
+        // then
+        assertThat(inputBuffer.getState()).isEqualTo(State.COMPLETE);
+        assertParsed(inputBuffer);
+    }
+
+    @Test
+    void parseRequestHeadAcrossPartialReads() throws IOException {
+        for (int readSize = 1; readSize <= REQUEST.length(); readSize++) {
+            // given
+            final var socket = new StubSocket(REQUEST, readSize);
+            final var inputBuffer = new Http11InputBuffer(socket.getInputStream());
+
+            // when
+            final boolean parsed = inputBuffer.parseRequestHead();
+
+            // then
+            assertThat(parsed).as("read size %d", readSize).isTrue();
+            assertParsed(inputBuffer);
+        }
+    }
+
+    @Test
+    void chunkedBodySplitAtEveryByteBoundary() throws IOException {
+        final byte[] request = new StubSocket(CHUNKED_REQUEST).getInputStream().readAllBytes();
+
+        for (int split = 0; split < request.length; split++) {
+            // given
+            final var inputBuffer = new Http11InputBuffer();
+
+            // when
+            final State first = inputBuffer.feed(ByteBuffer.wrap(request, 0, split));
+            final State second = inputBuffer.feed(ByteBuffer.wrap(request, split, request.length - split));
+
+            // then
+            assertThat(first).as("split at %d", split).isNotEqualTo(State.COMPLETE);
+            assertThat(second).as("split at %d", split).isEqualTo(State.COMPLETE);
+            assertThat(inputBuffer.getContentLength()).isEqualTo(-1);
+            assertThat(new String(inputBuffer.getBodyInputStream().readAllBytes(), StandardCharsets.ISO_8859_1))
+                    .isEqualTo(REQUEST_BODY);
+        }
+    }
+
+    @Test
+    void chunkedBodyAcrossPartialReads() throws IOException {
+        for (int readSize = 1; readSize <= CHUNKED_REQUEST.length(); readSize++) {
+            // given
+            final var socket = new StubSocket(CHUNKED_REQUEST + "GET /next HTTP/1.1\r\n\r\n", readSize);
+            final var inputBuffer = new Http11InputBuffer(socket.getInputStream());
+            inputBuffer.parseRequestHead();
+
+            // when
+            final byte[] body = inputBuffer.getBodyInputStream().readAllBytes();
+            inputBuffer.nextRequest();
+            inputBuffer.parseRequestHead();
+
+            // then
+            assertThat(new String(body, StandardCharsets.ISO_8859_1)).as("read size %d", readSize).isEqualTo(REQUEST_BODY);
+            assertThat(inputBuffer.getRequestUri()).isEqualTo("/next");
+        }
+    }
+
+    @Test
+    void unreadBodyIsSkipped() throws IOException {
+        // given
+        final var socket = new StubSocket(CHUNKED_REQUEST + REQUEST, 7);
+        final var inputBuffer = new Http11InputBuffer(socket.getInputStream());
+        inputBuffer.parseRequestHead();
+
+        // when
+        inputBuffer.nextRequest();
+        inputBuffer.parseRequestHead();
+
+        // then
+        assertParsed(inputBuffer);
+    }
+
+    @Test
+    void reportsStatesInOrder() {
+        // given
+        final var inputBuffer = new Http11InputBuffer();
+
+        // when & then
+        assertThat(inputBuffer.feed(bytes("POST /login HT"))).isEqualTo(State.REQUEST_LINE);
+        assertThat(inputBuffer.feed(bytes("TP/1.1\r\nContent-Len"))).isEqualTo(State.HEADERS);
+        assertThat(inputBuffer.feed(bytes("gth: 4\r\n\r\nab"))).isEqualTo(State.BODY);
+        assertThat(inputBuffer.feed(bytes("cd"))).isEqualTo(State.COMPLETE);
+    }
+
+    @Test
+    void pipelinedRequests() throws IOException {
+        // given
+        final var inputBuffer = new Http11InputBuffer();
+        inputBuffer.feed(bytes("GET /index.html HTTP/1.1\r\nHost: a\r\n\r\nGET /login HTTP/1.1\r\nHost: b\r\n\r\nGET"));
+
+        // when & then
+        assertThat(inputBuffer.getRequestUri()).isEqualTo("/index.html");
+        inputBuffer.nextRequest();
+        assertThat(inputBuffer.parse()).isEqualTo(State.COMPLETE);
+        assertThat(inputBuffer.getRequestUri()).isEqualTo("/login");
+        assertThat(inputBuffer.getHeader("host")).isEqualTo("b");
+        inputBuffer.nextRequest();
+        assertThat(inputBuffer.parse()).isEqualTo(State.REQUEST_LINE);
+    }
+
+    @Test
+    void headerValueWithColon() {
+        // given
+        final var inputBuffer = new Http11InputBuffer();
+
+        // when
+        inputBuffer.feed(bytes("GET / HTTP/1.1\r\nX-Forwarded: for=a: b \r\n\r\n"));
+
+        // then
+        assertThat(inputBuffer.getHeader("x-forwarded")).isEqualTo("for=a: b");
+    }
+
+    @Test
+    void repeatedHeaders() {
+        // given
+        final var inputBuffer = new Http11InputBuffer();
+        inputBuffer.feed(bytes("GET / HTTP/1.1\r\nCOOKIE: a=1\r\nHost: localhost\r\ncookie: b=2; c=3\r\n\r\n"));
+
+        // when
+        final var request = new HttpRequest(inputBuffer);
+
+        // then
+        assertThat(request.getHeaders(HttpHeader.COOKIE)).containsExactly("a=1", "b=2; c=3");
+        assertThat(request.getHeader("Cookie")).isEqualTo("a=1");
+        assertThat(request.getCookie("c").getValue()).isEqualTo("3");
+        assertThat(inputBuffer.getHeaderName(0)).isSameAs(HttpHeader.COOKIE.getHeaderName());
+    }
+
+    @Test
+    void invalidHeaderName() {
+        // given
+        final var inputBuffer = new Http11InputBuffer();
+
+        // when & then
+        assertThatThrownBy(() -> inputBuffer.feed(bytes("GET / HTTP/1.1\r\nHost localhost\r\n\r\n")))
+                .isInstanceOf(HttpParseException.class);
+    }
+
+    @Test
+    void uriTooLong() {
+        // given
+        final var config = new Http11Config();
+        config.setMaxUriLength(16);
+        final var inputBuffer = new Http11InputBuffer(config);
+
+        // when & then
+        assertThatThrownBy(() -> inputBuffer.feed(bytes("GET /" + "a".repeat(16))))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.URI_TOO_LONG);
+    }
+
+    @Test
+    void headTooLargeBeforeItEnds() {
+        // given
+        final var config = new Http11Config();
+        config.setMaxHttpHeaderSize(64);
+        final var inputBuffer = new Http11InputBuffer(config);
+
+        // when & then
+        assertThatThrownBy(() -> inputBuffer.feed(bytes("GET / HTTP/1.1\r\nX-Padding: " + "a".repeat(64))))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+    }
+
+    @Test
+    void tooManyHeaders() {
+        // given
+        final var config = new Http11Config();
+        config.setMaxHeaderCount(2);
+        final var inputBuffer = new Http11InputBuffer(config);
+
+        // when & then
+        assertThatThrownBy(() -> inputBuffer.feed(bytes("GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n")))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+    }
+
+    @Test
+    void conflictingContentLengthsRejected() {
+        // when & then
+        assertThatThrownBy(() -> new Http11InputBuffer()
+                .feed(bytes("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 50\r\n\r\n")))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> new Http11InputBuffer()
+                .feed(bytes("POST / HTTP/1.1\r\nContent-Length: 5, 6\r\n\r\n")))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void repeatedIdenticalContentLengthsAccepted() throws IOException {
+        // given
+        final var inputBuffer = new Http11InputBuffer();
+
+        // when
+        inputBuffer.feed(bytes("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 5, 5\r\n\r\nhello"));
+
+        // then
+        assertThat(inputBuffer.getContentLength()).isEqualTo(5);
+    }
+
+    @Test
+    void contentLengthOverLimitRejectedBeforeBody() {
+        // given
+        final var config = new Http11Config();
+        config.setMaxPostSize(10);
+        final var inputBuffer = new Http11InputBuffer(config);
+
+        // when & then
+        assertThatThrownBy(() -> inputBuffer.feed(bytes("POST / HTTP/1.1\r\nContent-Length: 11\r\n\r\n")))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONTENT_TOO_LARGE);
+        assertThatThrownBy(() -> new Http11InputBuffer().feed(bytes("POST / HTTP/1.1\r\nContent-Length: 99999999999\r\n\r\n")))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONTENT_TOO_LARGE);
+    }
+
+    @Test
+    void chunkedBodyOverLimit() {
+        // given
+        final var config = new Http11Config();
+        config.setMaxPostSize(20);
+        final var inputBuffer = new Http11InputBuffer(config);
+
+        // when & then
+        assertThatThrownBy(() -> inputBuffer.feed(bytes(CHUNKED_REQUEST)))
+                .isInstanceOf(HttpParseException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONTENT_TOO_LARGE);
+    }
+
+    private void assertParsed(final Http11InputBuffer inputBuffer) throws IOException {
+        assertThat(inputBuffer.getMethod()).isEqualTo("POST");
+        assertThat(inputBuffer.getRequestUri()).isEqualTo("/login");
+        assertThat(inputBuffer.getQueryString()).isEqualTo("redirect=index");
+        assertThat(inputBuffer.getProtocol()).isEqualTo("HTTP/1.1");
+        assertThat(inputBuffer.getHeader("Referer")).isEqualTo("http://localhost:8080/login");
+        assertThat(inputBuffer.getContentLength()).isEqualTo(REQUEST_BODY.length());
+        assertThat(new String(inputBuffer.getBodyInputStream().readAllBytes(), StandardCharsets.ISO_8859_1))
+                .isEqualTo(REQUEST_BODY);
+    }
+
+    private ByteBuffer bytes(final String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
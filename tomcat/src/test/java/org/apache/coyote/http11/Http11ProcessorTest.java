@@ -1,12 +1,21 @@
 package org.apache.coyote.http11;
 
+import org.apache.catalina.webresources.CachedResource;
+import org.apache.catalina.webresources.ResourceFingerprints;
+import org.apache.catalina.webresources.StaticResourceCache;
 import org.junit.jupiter.api.Test;
 import support.StubSocket;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -50,12 +59,604 @@ class Http11ProcessorTest {
 
         // then
         final URL resource = getClass().getClassLoader().getResource("static/index.html");
+        final var cachedResource = CachedResource.load(new File(resource.getFile()).toPath(), Integer.MAX_VALUE);
         var expected = "HTTP/1.1 200 OK \r\n" +
                 "Content-Type: text/html;charset=utf-8 \r\n" +
                 "Content-Length: 5564 \r\n" +
+                "Vary: Accept-Encoding \r\n" +
+                "Accept-Ranges: bytes \r\n" +
+                "ETag: " + cachedResource.getETag() + " \r\n" +
+                "Last-Modified: " + cachedResource.getLastModifiedHttp() + " \r\n" +
                 "\r\n"+
                 new String(Files.readAllBytes(new File(resource.getFile()).toPath()));
 
         assertThat(socket.output()).isEqualTo(expected);
     }
+
+    @Test
+    void fingerprintedResource() throws IOException, URISyntaxException {
+        // given
+        final var fingerprints = ResourceFingerprints.scan(Path.of(getClass().getClassLoader().getResource("static").toURI()));
+        final var resourceCache = new StaticResourceCache();
+        resourceCache.setFingerprints(fingerprints);
+        final String uri = fingerprints.toFingerprintedUri("/css/styles.css");
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "",
+                "GET " + uri + " HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket, new Http11Config(), resourceCache);
+
+        // when
+        processor.process(socket);
+
+        // then
+        final String output = socket.output();
+        final String page = output.substring(0, output.indexOf("HTTP/1.1 200 OK", 1));
+        final String stylesheet = output.substring(page.length());
+        assertThat(page)
+                .contains("href=\"" + uri + "\"")
+                .doesNotContain("Cache-Control");
+        assertThat(stylesheet)
+                .startsWith("HTTP/1.1 200 OK \r\nContent-Type: text/css;charset=utf-8 \r\n")
+                .contains("Cache-Control: public, max-age=31536000, immutable \r\n");
+    }
+
+    @Test
+    void staleFingerprintIsNotImmutable() throws IOException, URISyntaxException {
+        // given
+        final var resourceCache = new StaticResourceCache();
+        resourceCache.setFingerprints(ResourceFingerprints.scan(Path.of(getClass().getClassLoader().getResource("static").toURI())));
+        final String httpRequest = String.join("\r\n",
+                "GET /resources/stale/css/styles.css HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket, new Http11Config(), resourceCache);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 200 OK \r\nContent-Type: text/css;charset=utf-8 \r\n")
+                .doesNotContain("Cache-Control");
+    }
+
+    @Test
+    void gzipCompressedResource() throws IOException {
+        // given
+        final var resourceCache = new StaticResourceCache();
+        resourceCache.setCompression(2048, Set.of("text/css"));
+        final String httpRequest = String.join("\r\n",
+                "GET /css/styles.css HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Accept-Encoding: gzip, deflate, br ",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket, new Http11Config(), resourceCache);
+
+        // when
+        processor.process(socket);
+
+        // then
+        final CachedResource resource = resourceCache.get("/css/styles.css");
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 200 OK \r\nContent-Type: text/css;charset=utf-8 \r\nContent-Length: "
+                        + resource.getGzipContent().length + " \r\n")
+                .contains("Vary: Accept-Encoding \r\n", "Content-Encoding: gzip \r\n",
+                        "ETag: " + resource.getGzipETag() + " \r\n");
+    }
+
+    @Test
+    void identityResourceWithoutAcceptEncoding() throws IOException {
+        // given
+        final var resourceCache = new StaticResourceCache();
+        resourceCache.setCompression(2048, Set.of("text/css"));
+        final String httpRequest = String.join("\r\n",
+                "GET /css/styles.css HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket, new Http11Config(), resourceCache);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .contains("Content-Length: 211991 \r\n", "Vary: Accept-Encoding \r\n")
+                .doesNotContain("Content-Encoding");
+    }
+
+    @Test
+    void gzipCompressedWhileWriting() throws IOException {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Accept-Encoding: gzip ",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        final String output = socket.output();
+        final int bodyStart = output.indexOf("\r\n\r\n") + 4;
+        assertThat(output.substring(0, bodyStart))
+                .contains("Transfer-Encoding: chunked \r\n", "Content-Encoding: gzip \r\n", "ETag: W/\"")
+                .doesNotContain("Content-Length");
+        final URL resource = getClass().getClassLoader().getResource("static/index.html");
+        try (final var gzip = new GZIPInputStream(new ByteArrayInputStream(dechunk(socket.outputBytes(), bodyStart)))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(Files.readAllBytes(new File(resource.getFile()).toPath()));
+        }
+    }
+
+    @Test
+    void notModifiedForEchoedWeakGzipETag() {
+        // given
+        final String firstRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Accept-Encoding: gzip ",
+                "Connection: close ",
+                "",
+                "");
+        final var first = new StubSocket(firstRequest);
+        new Http11Processor(first).process(first);
+        final String firstOutput = first.output();
+        final int eTagStart = firstOutput.indexOf("ETag: ") + "ETag: ".length();
+        final String eTag = firstOutput.substring(eTagStart, firstOutput.indexOf(" \r\n", eTagStart));
+
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Accept-Encoding: gzip ",
+                "If-None-Match: " + eTag,
+                "Connection: close ",
+                "",
+                "");
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(eTag).startsWith("W/\"");
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 304 NOT MODIFIED \r\n")
+                .contains("ETag: " + eTag + " \r\n");
+    }
+
+    @Test
+    void identityForHttp10() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.0 ",
+                "Host: localhost:8080 ",
+                "Accept-Encoding: gzip ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .contains("Content-Length: 5564 \r\n")
+                .doesNotContain("Content-Encoding");
+    }
+
+    private static byte[] dechunk(final byte[] message, int position) {
+        final var body = new ByteArrayOutputStream();
+        while (true) {
+            int lineEnd = position;
+            while (message[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            final int size = Integer.parseInt(new String(message, position, lineEnd - position), 16);
+            if (size == 0) {
+                return body.toByteArray();
+            }
+            body.write(message, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+    }
+
+    @Test
+    void notModifiedForMatchingETag() throws IOException {
+        // given
+        final URL resource = getClass().getClassLoader().getResource("static/index.html");
+        final String eTag = CachedResource.load(new File(resource.getFile()).toPath(), Integer.MAX_VALUE).getETag();
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "If-None-Match: \"other\", W/" + eTag,
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output()).isEqualTo(String.join("\r\n",
+                "HTTP/1.1 304 NOT MODIFIED ",
+                "Connection: close ",
+                "ETag: " + eTag + " ",
+                "Vary: Accept-Encoding ",
+                "",
+                ""));
+    }
+
+    @Test
+    void notModifiedSinceLastModified() throws IOException {
+        // given
+        final URL resource = getClass().getClassLoader().getResource("static/index.html");
+        final String lastModified = CachedResource.load(new File(resource.getFile()).toPath(), Integer.MAX_VALUE).getLastModifiedHttp();
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "If-Modified-Since: " + lastModified,
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output()).startsWith("HTTP/1.1 304 NOT MODIFIED \r\n");
+    }
+
+    @Test
+    void singleRange() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Range: bytes=0-14",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 206 PARTIAL CONTENT \r\n")
+                .contains("Content-Length: 15 \r\n", "Content-Range: bytes 0-14/5564 \r\n")
+                .endsWith("\r\n\r\n<!DOCTYPE html>");
+    }
+
+    @Test
+    void multipleRanges() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Range: bytes=2-4, -3",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 206 PARTIAL CONTENT \r\n")
+                .contains("Content-Type: multipart/byteranges; boundary=")
+                .contains("Content-Range: bytes 2-4/5564\r\n\r\nDOC\r\n")
+                .contains("Content-Range: bytes 5561-5563/5564\r\n\r\nl>\n\r\n");
+    }
+
+    @Test
+    void rangesOfFileNotHeldInMemory() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Range: bytes=2-14",
+                "",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Range: bytes=2-4, -3",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final var resourceCache = new StaticResourceCache(0, 0, 0);
+        final Http11Processor processor = new Http11Processor(socket, new Http11Config(), resourceCache);
+
+        // when
+        processor.process(socket);
+
+        // then
+        final String output = socket.output();
+        final String single = output.substring(0, output.indexOf("HTTP/1.1 206", 1));
+        assertThat(single)
+                .contains("Content-Length: 13 \r\n", "Content-Range: bytes 2-14/5564 \r\n")
+                .endsWith("\r\n\r\nDOCTYPE html>");
+        assertThat(output.substring(single.length()))
+                .contains("Content-Range: bytes 2-4/5564\r\n\r\nDOC\r\n")
+                .contains("Content-Range: bytes 5561-5563/5564\r\n\r\nl>\n\r\n");
+    }
+
+    @Test
+    void unsatisfiableRange() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Range: bytes=6000-",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 416 RANGE NOT SATISFIABLE \r\n")
+                .contains("Content-Range: bytes */5564 \r\n");
+    }
+
+    @Test
+    void emptyRangeSetIsIgnored() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Range: bytes=,",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 200 OK \r\n")
+                .contains("Content-Length: 5564 \r\n")
+                .doesNotContain("Content-Range");
+    }
+
+    @Test
+    void keepAlive() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /hello HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "",
+                "GET /hello HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        var response = String.join("\r\n",
+                "HTTP/1.1 200 OK ",
+                "Content-Type: text/html;charset=utf-8 ",
+                "Content-Length: 12 ",
+                "",
+                "Hello world!");
+
+        assertThat(socket.output()).isEqualTo(response + response);
+    }
+
+    @Test
+    void connectionClose() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /hello HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Connection: close ",
+                "",
+                "GET /hello HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        var expected = String.join("\r\n",
+                "HTTP/1.1 200 OK ",
+                "Content-Type: text/html;charset=utf-8 ",
+                "Content-Length: 12 ",
+                "Connection: close ",
+                "",
+                "Hello world!");
+
+        assertThat(socket.output()).isEqualTo(expected);
+    }
+
+    @Test
+    void pipelining() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "POST /unknown HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "",
+                "GET /hello HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Connection: close ",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        var expected = String.join("\r\n",
+                "HTTP/1.1 404 NOT FOUND ",
+                "Content-Length: 0 ",
+                "",
+                "HTTP/1.1 200 OK ",
+                "Content-Type: text/html;charset=utf-8 ",
+                "Content-Length: 12 ",
+                "Connection: close ",
+                "",
+                "Hello world!");
+
+        assertThat(socket.output()).isEqualTo(expected);
+    }
+
+    @Test
+    void login() {
+        // given
+        final String requestBody = "account=gugu&password=password";
+        final String httpRequest = String.join("\r\n",
+                "POST /login HTTP/1.1",
+                "host: localhost:8080",
+                "content-length: " + requestBody.length(),
+                "content-type: application/x-www-form-urlencoded",
+                "Referer: http://localhost:8080/login",
+                "Connection: close",
+                "",
+                requestBody);
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output())
+                .startsWith("HTTP/1.1 302 FOUND \r\n")
+                .contains("Set-Cookie: JSESSIONID=");
+    }
+
+    @Test
+    void badRequest() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /index.html HTTP/1.1",
+                "Host localhost:8080",
+                "",
+                "");
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output()).startsWith("HTTP/1.1 400 BAD REQUEST \r\n");
+    }
+
+    @Test
+    void requestTooLarge() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "POST /register HTTP/1.1",
+                "Host: localhost:8080",
+                "Content-Length: 4096",
+                "",
+                "");
+        final var config = new Http11Config();
+        config.setMaxPostSize(1024);
+
+        final var socket = new StubSocket(httpRequest);
+        final Http11Processor processor = new Http11Processor(socket, config);
+
+        // when
+        processor.process(socket);
+
+        // then
+        assertThat(socket.output()).startsWith("HTTP/1.1 413 CONTENT TOO LARGE \r\n");
+        assertThat(socket.output()).contains("Connection: close ");
+    }
+
+    @Test
+    void partialReads() {
+        // given
+        final String httpRequest = String.join("\r\n",
+                "GET /hello HTTP/1.1 ",
+                "Host: localhost:8080 ",
+                "Connection: close ",
+                "",
+                "");
+        final var expected = String.join("\r\n",
+                "HTTP/1.1 200 OK ",
+                "Content-Type: text/html;charset=utf-8 ",
+                "Content-Length: 12 ",
+                "Connection: close ",
+                "",
+                "Hello world!");
+
+        for (int readSize = 1; readSize <= httpRequest.length(); readSize++) {
+            final var socket = new StubSocket(httpRequest, readSize);
+            final Http11Processor processor = new Http11Processor(socket);
+
+            // when
+            processor.process(socket);
+
+            // then
+            assertThat(socket.output()).as("read size %d", readSize).isEqualTo(expected);
+        }
+    }
 }
@@ -0,0 +1,177 @@
+package org.apache.coyote.http11;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResponseWriterTest {
+
+    @Test
+    void writeResponse() throws IOException {
+        // given
+        final var response = new HttpResponse();
+        response.setStatus(HttpStatus.FOUND);
+        response.setContentType("text/html;charset=utf-8");
+        response.addHeader(HttpHeader.SET_COOKIE, "JSESSIONID=abc");
+        response.setBody("hello".getBytes(StandardCharsets.UTF_8));
+        final var outputStream = new ByteArrayOutputStream();
+
+        // when
+        new ResponseWriter().write(response, false, outputStream);
+
+        // then
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(String.join("\r\n",
+                "HTTP/1.1 302 FOUND ",
+                "Content-Type: text/html;charset=utf-8 ",
+                "Content-Length: 5 ",
+                "Connection: close ",
+                "Set-Cookie: JSESSIONID=abc ",
+                "",
+                "hello"));
+    }
+
+    @Test
+    void reuseWriterForLargerBody() throws IOException {
+        // given
+        final var writer = new ResponseWriter();
+        final var response = new HttpResponse();
+        final byte[] body = new byte[20_000];
+        Arrays.fill(body, (byte) 'a');
+        writer.write(response, true, new ByteArrayOutputStream());
+        response.setBody(body);
+        final var outputStream = new ByteArrayOutputStream();
+
+        // when
+        writer.write(response, true, outputStream);
+
+        // then
+        final String expectedHead = "HTTP/1.1 200 OK \r\nContent-Length: 20000 \r\n\r\n";
+        assertThat(outputStream.size()).isEqualTo(expectedHead.length() + body.length);
+        assertThat(outputStream.toString(StandardCharsets.ISO_8859_1)).startsWith(expectedHead);
+    }
+
+    @Test
+    void writeFileBodyAsIs(@TempDir final Path directory) throws IOException {
+        // given
+        final byte[] content = new byte[20_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        content[content.length - 2] = '\r';
+        content[content.length - 1] = '\n';
+        final Path file = Files.write(directory.resolve("image.bin"), content);
+        final var response = new HttpResponse();
+        response.setBodyFile(file, content.length);
+        final var outputStream = new ByteArrayOutputStream();
+
+        // when
+        new ResponseWriter().write(response, true, outputStream);
+
+        // then
+        final byte[] written = outputStream.toByteArray();
+        final int headLength = "HTTP/1.1 200 OK \r\nContent-Length: 20000 \r\n\r\n".length();
+        assertThat(Arrays.copyOfRange(written, headLength, written.length)).isEqualTo(content);
+    }
+
+    @Test
+    void writeBufferBodyWithoutMovingTheSource() throws IOException {
+        // given
+        final ByteBuffer source = ByteBuffer.allocateDirect(10_000);
+        while (source.hasRemaining()) {
+            source.put((byte) 'b');
+        }
+        source.flip();
+        final var response = new HttpResponse();
+        response.setBodyBuffers(source.duplicate());
+        final var outputStream = new ByteArrayOutputStream();
+
+        // when
+        new ResponseWriter().write(response, true, outputStream);
+
+        // then
+        final String expectedHead = "HTTP/1.1 200 OK \r\nContent-Length: 10000 \r\n\r\n";
+        assertThat(outputStream.toString(StandardCharsets.ISO_8859_1)).isEqualTo(expectedHead + "b".repeat(10_000));
+        assertThat(source.remaining()).isEqualTo(10_000);
+    }
+
+    @Test
+    void streamBodyInChunks() throws IOException {
+        // given
+        final var config = new Http11Config();
+        config.setChunkFlushThreshold(8);
+        final var response = new HttpResponse();
+        response.setContentType("text/plain;charset=utf-8");
+        response.setBodyWriter(out -> {
+            out.write("Hello ".getBytes(StandardCharsets.UTF_8));
+            out.write("streaming world".getBytes(StandardCharsets.UTF_8));
+        });
+        final var outputStream = new ByteArrayOutputStream();
+
+        // when
+        new ResponseWriter(config).write(response, true, outputStream);
+
+        // then
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(String.join("\r\n",
+                "HTTP/1.1 200 OK ",
+                "Content-Type: text/plain;charset=utf-8 ",
+                "Transfer-Encoding: chunked ",
+                "",
+                "8",
+                "Hello st",
+                "8",
+                "reaming ",
+                "5",
+                "world",
+                "0",
+                "",
+                ""));
+    }
+
+    @Test
+    void flushFullChunks() throws IOException {
+        // given
+        final var config = new Http11Config();
+        config.setChunkFlushThreshold(4);
+        final var response = new HttpResponse();
+        response.setBodyWriter(out -> out.write(new byte[10]));
+        final var flushes = new int[1];
+        final var outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        // when
+        new ResponseWriter(config).write(response, true, outputStream);
+
+        // then
+        assertThat(flushes[0]).isEqualTo(2);
+    }
+
+    @Test
+    void abortStreamWithoutLastChunk() {
+        // given
+        final var response = new HttpResponse();
+        response.setBodyWriter(out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("generator failed");
+        });
+        final var outputStream = new ByteArrayOutputStream();
+
+        // when & then
+        assertThatThrownBy(() -> new ResponseWriter().write(response, true, outputStream))
+                .hasMessage("generator failed");
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).doesNotContain("0\r\n\r\n");
+    }
+}
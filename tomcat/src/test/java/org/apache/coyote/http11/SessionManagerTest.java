@@ -0,0 +1,166 @@
+package org.apache.coyote.http11;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionManagerTest {
+
+    @Test
+    void findSessionMarksItUsed() throws InterruptedException {
+        // given
+        final var manager = new SessionManager(60);
+        final Session session = manager.createSession();
+        manager.add(session);
+        final long createdAt = session.getLastAccessedTime();
+        Thread.sleep(5);
+
+        // when
+        final Session found = manager.findSession(session.getId());
+
+        // then
+        assertThat(found).isSameAs(session);
+        assertThat(found.getLastAccessedTime()).isGreaterThan(createdAt);
+    }
+
+    @Test
+    void processExpiresRemovesIdleSessions() {
+        // given
+        final var manager = new SessionManager(1);
+        final Session idle = manager.createSession();
+        final Session eternal = new Session("eternal", 0);
+        manager.add(idle);
+        manager.add(eternal);
+
+        // when
+        final int expired = manager.processExpires(idle.getLastAccessedTime() + 1_000);
+
+        // then
+        assertThat(expired).isEqualTo(1);
+        assertThat(manager.findSession(idle.getId())).isNull();
+        assertThat(manager.findSession("eternal")).isSameAs(eternal);
+        assertThat(manager.getActiveSessions()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredSessionIsNotFound() throws InterruptedException {
+        // given
+        final var manager = new SessionManager(60);
+        final Session session = manager.createSession();
+        manager.add(session);
+
+        // when
+        session.setMaxInactiveInterval(1);
+        Thread.sleep(1_000);
+
+        // then
+        assertThat(manager.findSession(session.getId())).isNull();
+    }
+
+    @Test
+    void evictSessionNotUsedRecently() {
+        // given
+        final var manager = new SessionManager();
+        manager.setMaxActiveSessions(2);
+        final Session used = manager.createSession();
+        final Session unused = manager.createSession();
+        manager.add(used);
+        manager.add(unused);
+        manager.findSession(used.getId());
+
+        // when
+        final Session created = manager.createSession();
+        manager.add(created);
+
+        // then
+        assertThat(manager.getActiveSessions()).isEqualTo(2);
+        assertThat(manager.getEvictedSessions()).isEqualTo(1);
+        assertThat(manager.findSession(used.getId())).isSameAs(used);
+        assertThat(manager.findSession(unused.getId())).isNull();
+        assertThat(manager.findSession(created.getId())).isSameAs(created);
+        assertThat(unused.isValid()).isFalse();
+    }
+
+    @Test
+    void evictionIsNotExhaustedByRemovedSessions() {
+        // given
+        final var manager = new SessionManager();
+        manager.setMaxActiveSessions(2);
+        for (int i = 0; i < 20; i++) {
+            final Session loggedOut = manager.createSession();
+            manager.add(loggedOut);
+            loggedOut.invalidate();
+        }
+        manager.add(manager.createSession());
+        manager.add(manager.createSession());
+
+        // when
+        final Session created = manager.createSession();
+        manager.add(created);
+
+        // then
+        assertThat(manager.getEvictedSessions()).isEqualTo(1);
+        assertThat(manager.findSession(created.getId())).isSameAs(created);
+    }
+
+    @Test
+    void rejectSessionWhenFull() {
+        // given
+        final var manager = new SessionManager();
+        manager.setMaxActiveSessions(1);
+        manager.setOverflowPolicy(SessionManager.OverflowPolicy.REJECT);
+        final Session first = manager.createSession();
+        manager.add(first);
+
+        // when & then
+        assertThatThrownBy(() -> manager.add(manager.createSession()))
+                .isInstanceOf(TooManyActiveSessionsException.class);
+        assertThat(manager.getRejectedSessions()).isEqualTo(1);
+        assertThat(manager.findSession(first.getId())).isSameAs(first);
+    }
+
+    @Test
+    void invalidateRemovesSession() {
+        // given
+        final var manager = new SessionManager();
+        final Session session = manager.createSession();
+        manager.add(session);
+        session.setAttribute("user", "gugu");
+
+        // when
+        session.invalidate();
+
+        // then
+        assertThat(manager.findSession(session.getId())).isNull();
+        assertThat(manager.getActiveSessions()).isZero();
+        assertThatThrownBy(() -> session.getAttribute("user")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void storedSessionsAreRestoredAfterARestart(@TempDir Path dir) {
+        // given
+        final var before = new SessionManager(60);
+        before.setStore(new FileSessionStore(dir.resolve("SESSIONS.log")));
+        final Session kept = before.createSession();
+        final Session invalidated = before.createSession();
+        before.add(kept);
+        before.add(invalidated);
+        kept.setAttribute("account", "gugu");
+        invalidated.invalidate();
+        before.stop();
+
+        // when
+        final var after = new SessionManager(60);
+        after.setStore(new FileSessionStore(dir.resolve("SESSIONS.log")));
+        final Session restored = after.findSession(kept.getId());
+
+        // then
+        assertThat(restored.getAttribute("account")).isEqualTo("gugu");
+        assertThat(after.findSession(kept.getId())).isSameAs(restored);
+        assertThat(after.findSession(invalidated.getId())).isNull();
+        assertThat(after.getActiveSessions()).isEqualTo(1);
+    }
+}
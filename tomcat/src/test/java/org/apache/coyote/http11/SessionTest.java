@@ -0,0 +1,100 @@
+package org.apache.coyote.http11;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionTest {
+
+    @Test
+    void attributesOutgrowTheInlineArray() {
+        // given
+        final var session = new Session("id");
+        for (int i = 0; i < 6; i++) {
+            session.setAttribute("name" + i, i);
+        }
+
+        // when
+        session.setAttribute("name2", "replaced");
+        session.removeAttribute("name0");
+
+        // then
+        assertThat(session.getAttribute("name2")).isEqualTo("replaced");
+        assertThat(session.getAttribute("name5")).isEqualTo(5);
+        assertThat(session.getAttribute("name0")).isNull();
+        assertThat(Collections.list(session.getAttributeNames()))
+                .containsExactlyInAnyOrder("name1", "name2", "name3", "name4", "name5");
+    }
+
+    @Test
+    void removingFromTheInlineArrayKeepsTheOthers() {
+        // given
+        final var session = new Session("id");
+        session.setAttribute("a", 1);
+        session.setAttribute("b", 2);
+        session.setAttribute("c", 3);
+
+        // when
+        session.removeAttribute("b");
+        session.setAttribute("c", null);
+
+        // then
+        assertThat(session.getAttribute("a")).isEqualTo(1);
+        assertThat(session.getAttribute("b")).isNull();
+        assertThat(session.getAttribute("c")).isNull();
+        assertThat(Collections.list(session.getAttributeNames())).containsExactly("a");
+    }
+
+    @Test
+    void nullAttributeNameIsRejected() {
+        // given
+        final var session = new Session("id");
+        session.setAttribute("a", 1);
+
+        // when & then
+        assertThatThrownBy(() -> session.setAttribute(null, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(session.getAttribute("a")).isEqualTo(1);
+        assertThat(session.getAttribute(null)).isNull();
+        assertThat(Collections.list(session.getAttributeNames())).containsExactly("a");
+    }
+
+    @Test
+    void concurrentWritersKeepEveryAttribute() throws InterruptedException {
+        // given
+        final var session = new Session("id");
+        final int threads = 8;
+        final int perThread = 50;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final var start = new CountDownLatch(1);
+
+        // when
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    session.setAttribute(thread + "-" + i, i);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(Collections.list(session.getAttributeNames())).hasSize(threads * perThread);
+        assertThat(session.getAttribute("3-49")).isEqualTo(49);
+    }
+}
@@ -0,0 +1,43 @@
+package org.apache.coyote.http11.filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedOutputStreamTest {
+
+    @Test
+    void collectWritesIntoChunks() throws IOException {
+        // given
+        final var out = new ByteArrayOutputStream();
+
+        // when
+        try (final var chunked = new ChunkedOutputStream(out, 16)) {
+            chunked.write("Hello ".getBytes(StandardCharsets.ISO_8859_1));
+            chunked.write("chunked world!".getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        // then
+        assertThat(out.toString(StandardCharsets.ISO_8859_1))
+                .isEqualTo("10\r\nHello chunked wo\r\n4\r\nrld!\r\n0\r\n\r\n");
+    }
+
+    @Test
+    void flushWritesPendingChunk() throws IOException {
+        // given
+        final var out = new ByteArrayOutputStream();
+        final var chunked = new ChunkedOutputStream(out, 1024);
+        chunked.write('a');
+
+        // when
+        chunked.flush();
+        chunked.flush();
+
+        // then
+        assertThat(out.toString(StandardCharsets.ISO_8859_1)).isEqualTo("1\r\na\r\n");
+    }
+}
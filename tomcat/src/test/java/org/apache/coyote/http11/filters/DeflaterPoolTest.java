@@ -0,0 +1,61 @@
+package org.apache.coyote.http11.filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeflaterPoolTest {
+
+    @Test
+    void refuseBeyondMaxActive() {
+        // given
+        final var pool = new DeflaterPool(2, Deflater.DEFAULT_COMPRESSION);
+        final Deflater first = pool.borrow();
+        final Deflater second = pool.borrow();
+
+        // when
+        final Deflater third = pool.borrow();
+
+        // then
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(third).isNull();
+    }
+
+    @Test
+    void reuseReleasedDeflater() throws IOException {
+        // given
+        final var pool = new DeflaterPool(1, Deflater.DEFAULT_COMPRESSION);
+        final byte[] content = "Hello world! Hello world! Hello world!".getBytes(StandardCharsets.UTF_8);
+        gzip(pool, content);
+
+        // when
+        final Deflater reused = pool.borrow();
+        pool.release(reused);
+        final byte[] compressed = gzip(pool, content);
+
+        // then
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        try (final var gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    private static byte[] gzip(final DeflaterPool pool, final byte[] content) throws IOException {
+        final Deflater deflater = pool.borrow();
+        final var out = new ByteArrayOutputStream();
+        try (final var gzip = new GzipOutputStream(out, deflater)) {
+            gzip.write(content);
+        } finally {
+            pool.release(deflater);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,43 @@
+package org.apache.tomcat.util.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AcceptEncodingTest {
+
+    @Test
+    void acceptListedEncoding() {
+        // given
+        final List<String> headers = List.of("deflate, GZIP;q=0.8, br");
+
+        // when
+        final boolean accepted = AcceptEncoding.isAccepted(headers, "gzip");
+
+        // then
+        assertThat(accepted).isTrue();
+    }
+
+    @Test
+    void refuseEncodingWithZeroQuality() {
+        // given
+        final List<String> headers = List.of("*", "gzip;q=0");
+
+        // when
+        final boolean accepted = AcceptEncoding.isAccepted(headers, "gzip");
+
+        // then
+        assertThat(accepted).isFalse();
+    }
+
+    @Test
+    void acceptThroughWildcard() {
+        // then
+        assertThat(AcceptEncoding.isAccepted(List.of("br, *;q=0.1"), "gzip")).isTrue();
+        assertThat(AcceptEncoding.isAccepted(List.of("br, *;q=0"), "gzip")).isFalse();
+        assertThat(AcceptEncoding.isAccepted(List.of("identity"), "gzip")).isFalse();
+        assertThat(AcceptEncoding.isAccepted(List.of(), "gzip")).isFalse();
+    }
+}
@@ -0,0 +1,241 @@
+package org.apache.tomcat.util.net;
+
+import org.apache.catalina.webresources.StaticResourceCache;
+import org.apache.coyote.http11.Http11Config;
+import org.apache.coyote.http11.Http11Processor;
+import org.apache.coyote.http11.SessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NioEndpointTest {
+
+    private static final int SMALL_SOCKET_BUFFER = 4096;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    // the number of bytes handed to the processor, one entry per read.
+    private final BlockingQueue<Integer> reads = new LinkedBlockingQueue<>();
+    private ServerSocketChannel serverChannel;
+    private NioEndpoint endpoint;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (endpoint != null) {
+            endpoint.stop();
+        }
+        serverChannel.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void pipelinedRequestsInOneRead() throws Exception {
+        // given
+        start(20_000, channel -> {});
+        final String requests = request("/index.html", "keep-alive") + request("/401.html", "close");
+
+        try (final Socket socket = connect()) {
+            // when
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.ISO_8859_1));
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final Response first = readResponse(input);
+            final Response second = readResponse(input);
+
+            // then
+            assertThat(reads.poll()).isEqualTo(requests.length());
+            assertThat(first.head()).startsWith("HTTP/1.1 200 OK");
+            assertThat(first.body()).isEqualTo(staticFile("index.html"));
+            assertThat(second.head()).startsWith("HTTP/1.1 200 OK").contains("Connection: close");
+            assertThat(second.body()).isEqualTo(staticFile("401.html"));
+            assertThat(input.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void requestSplitAcrossReads() throws Exception {
+        // given
+        start(20_000, channel -> {});
+        final byte[] request = request("/index.html", "close").getBytes(StandardCharsets.ISO_8859_1);
+
+        try (final Socket socket = connect()) {
+            // when
+            final OutputStream output = socket.getOutputStream();
+            for (int start = 0; start < request.length; start += 10) {
+                final int length = Math.min(10, request.length - start);
+                output.write(request, start, length);
+                output.flush();
+                // the next piece goes out only once this one has been read on its own.
+                assertThat(reads.poll(5, TimeUnit.SECONDS)).isEqualTo(length);
+            }
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final Response response = readResponse(input);
+
+            // then
+            assertThat(response.head()).startsWith("HTTP/1.1 200 OK");
+            assertThat(response.body()).isEqualTo(staticFile("index.html"));
+            assertThat(input.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void idleKeepAliveConnectionIsClosed() throws Exception {
+        // given
+        start(200, channel -> {});
+
+        try (final Socket socket = connect()) {
+            socket.getOutputStream().write(request("/index.html", "keep-alive").getBytes(StandardCharsets.ISO_8859_1));
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final Response response = readResponse(input);
+
+            // when
+            final long idleSince = System.currentTimeMillis();
+            final int next = input.read();
+
+            // then
+            assertThat(response.head()).startsWith("HTTP/1.1 200 OK").doesNotContain("Connection: close");
+            assertThat(next).isEqualTo(-1);
+            assertThat(System.currentTimeMillis() - idleSince).isGreaterThanOrEqualTo(150);
+        }
+    }
+
+    @Test
+    void idleConnectionIsKeptWithoutKeepAliveTimeout() throws Exception {
+        // given
+        start(0, channel -> {});
+
+        try (final Socket socket = connect()) {
+            final OutputStream output = socket.getOutputStream();
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            output.write(request("/index.html", "keep-alive").getBytes(StandardCharsets.ISO_8859_1));
+            readResponse(input);
+
+            // when: idle past at least one sweep, which runs once a second.
+            socket.setSoTimeout(2_500);
+            assertThatThrownBy(input::read).isInstanceOf(SocketTimeoutException.class);
+            socket.setSoTimeout(10_000);
+            output.write(request("/401.html", "close").getBytes(StandardCharsets.ISO_8859_1));
+            final Response response = readResponse(input);
+
+            // then
+            assertThat(response.head()).startsWith("HTTP/1.1 200 OK");
+            assertThat(response.body()).isEqualTo(staticFile("401.html"));
+        }
+    }
+
+    @Test
+    void largeFileSentWithSeveralWrites() throws Exception {
+        // given: socket buffers far smaller than the file, so transferTo
+        // returns short and the worker has to wait for the socket repeatedly.
+        start(20_000, channel -> {
+            try {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, SMALL_SOCKET_BUFFER);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        final byte[] styles = staticFile("css/styles.css");
+
+        try (final Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(SMALL_SOCKET_BUFFER);
+            socket.setSoTimeout(10_000);
+            socket.connect(serverChannel.getLocalAddress());
+            socket.getOutputStream().write(request("/css/styles.css", "close").getBytes(StandardCharsets.ISO_8859_1));
+
+            // when
+            final Response response = readResponse(new BufferedInputStream(socket.getInputStream()));
+
+            // then
+            assertThat(styles.length).isGreaterThan(50 * SMALL_SOCKET_BUFFER);
+            assertThat(response.head()).startsWith("HTTP/1.1 200 OK")
+                    .contains("Content-Length: " + styles.length + " ");
+            assertThat(response.body()).isEqualTo(styles);
+        }
+    }
+
+    private void start(final int keepAliveTimeout, final Consumer<SocketChannel> configure) throws IOException {
+        final var config = new Http11Config();
+        config.setKeepAliveTimeout(keepAliveTimeout);
+        // nothing held in memory, so files are sent from disk.
+        final var cache = new StaticResourceCache(0, 0, 0);
+        final var sessionManager = new SessionManager();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        endpoint = new NioEndpoint(serverChannel, executor, keepAliveTimeout, channel -> {
+            configure.accept(channel);
+            final var processor = new Http11Processor(channel.socket(), config, cache, sessionManager);
+            return (socket, input) -> {
+                reads.add(input.remaining());
+                return processor.process(socket, input);
+            };
+        });
+        endpoint.start();
+    }
+
+    private Socket connect() throws IOException {
+        final var socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(10_000);
+        socket.connect(serverChannel.getLocalAddress());
+        return socket;
+    }
+
+    private static String request(final String uri, final String connection) {
+        return String.join("\r\n",
+                "GET " + uri + " HTTP/1.1",
+                "Host: localhost",
+                "Connection: " + connection,
+                "",
+                "");
+    }
+
+    private static Response readResponse(final InputStream input) throws IOException {
+        final var head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            final int b = input.read();
+            if (b < 0) {
+                throw new IOException("Connection closed in the response head.");
+            }
+            head.write(b);
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        final String headText = head.toString(StandardCharsets.ISO_8859_1);
+        final int lengthStart = headText.indexOf("Content-Length: ") + "Content-Length: ".length();
+        final int length = Integer.parseInt(headText.substring(lengthStart, headText.indexOf('\r', lengthStart)).trim());
+        final byte[] body = new byte[length];
+        new DataInputStream(input).readFully(body);
+        return new Response(headText, body);
+    }
+
+    private byte[] staticFile(final String name) throws IOException, URISyntaxException {
+        return Files.readAllBytes(Path.of(getClass().getClassLoader().getResource("static/" + name).toURI()));
+    }
+
+    private record Response(String head, byte[] body) {
+    }
+}
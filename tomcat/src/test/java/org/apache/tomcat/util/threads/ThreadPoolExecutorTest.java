@@ -0,0 +1,80 @@
+package org.apache.tomcat.util.threads;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThreadPoolExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Semaphore started = new Semaphore(0);
+    private ThreadPoolExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void growsToMaxThreadsBeforeQueueing() {
+        // given
+        executor = new ThreadPoolExecutor(1, 3, 10, new TaskThreadFactory("test-", true));
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            executor.execute(this::await);
+            awaitStarted();
+        }
+
+        // then
+        assertThat(executor.getPoolSize()).isEqualTo(3);
+        assertThat(executor.getQueue()).isEmpty();
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        // given
+        executor = new ThreadPoolExecutor(1, 2, 1, new TaskThreadFactory("test-", true));
+        for (int i = 0; i < 2; i++) {
+            executor.execute(this::await);
+            awaitStarted();
+        }
+        executor.execute(this::await);
+
+        // when & then
+        assertThat(executor.getQueue()).hasSize(1);
+        assertThatThrownBy(() -> executor.execute(this::await))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(executor.getSubmittedCount()).isEqualTo(3);
+    }
+
+    /**
+     * Waits until a worker has taken the last task off the queue, so the
+     * next one sees the pool as it is rather than as it was a moment ago.
+     */
+    private void awaitStarted() {
+        try {
+            assertThat(started.tryAcquire(5, TimeUnit.SECONDS)).as("task started").isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+
+    private void await() {
+        started.release();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
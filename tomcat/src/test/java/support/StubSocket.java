@@ -12,10 +12,20 @@ import java.nio.charset.StandardCharsets;
 public class StubSocket extends Socket {
 
     private final String request;
+    private final int readSize;
     private final ByteArrayOutputStream outputStream;
 
     public StubSocket(final String request) {
+        this(request, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Hands the request out at most {@code readSize} bytes per read, the way a
+     * slow client's packets arrive.
+     */
+    public StubSocket(final String request, final int readSize) {
         this.request = request;
+        this.readSize = readSize;
         this.outputStream = new ByteArrayOutputStream();
     }
 
@@ -36,7 +46,12 @@ public class StubSocket extends Socket {
     }
 
     public InputStream getInputStream() {
-        return new ByteArrayInputStream(request.getBytes());
+        return new ByteArrayInputStream(request.getBytes()) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, readSize));
+            }
+        };
     }
 
     public OutputStream getOutputStream() {
@@ -51,4 +66,8 @@ public class StubSocket extends Socket {
     public String output() {
         return outputStream.toString(StandardCharsets.UTF_8);
     }
+
+    public byte[] outputBytes() {
+        return outputStream.toByteArray();
+    }
 }